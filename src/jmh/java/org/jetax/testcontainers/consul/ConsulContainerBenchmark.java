@@ -0,0 +1,112 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the library itself per container, without starting anything.
+ * Benchmarks creating containers need Docker environment, as test-containers resolves docker client on creation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsulContainerBenchmark {
+
+    /**
+     * minimal - datacenter only, full - every section of configuration set, including legacy ACLs
+     */
+    @Param({"minimal", "full"})
+    public String configuration;
+
+    private ConsulConfiguration config;
+    private ConsulCommand command;
+    private ConsulContainerBuilder builder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        builder = new ConsulContainerBuilder().withDatacenter("dc");
+        if ("full".equals(configuration)) {
+            ConsulConfiguration.Ports ports = new ConsulConfiguration.Ports();
+            ports.setHttpPort(8500);
+            ports.setHttpsPort(8501);
+            ports.setDnsPort(8600);
+
+            ConsulConfiguration.DNS dns = new ConsulConfiguration.DNS();
+            dns.setAllowStale(true);
+            dns.setMaxStale("10s");
+            dns.setNodeTTL("5s");
+
+            builder.withPorts(ports)
+                    .withACLEnabled()
+                    .withACLDefaultPolicy("deny")
+                    .withMasterToken(UUID.randomUUID().toString())
+                    .withAgentToken(UUID.randomUUID().toString())
+                    .withReplicationToken(UUID.randomUUID().toString())
+                    .withDefaultToken(UUID.randomUUID().toString())
+                    .ui();
+
+            ConsulConfiguration fullConfig = builder.buildConfig();
+            fullConfig.setNodeName("node");
+            fullConfig.setPrimaryDatacenter("dc");
+            fullConfig.setLogLevel("DEBUG");
+            fullConfig.setDns(dns);
+            fullConfig.setAclMasterToken(UUID.randomUUID().toString());
+            fullConfig.setAclAgentToken(UUID.randomUUID().toString());
+            fullConfig.setAclAgentMasterToken(UUID.randomUUID().toString());
+            fullConfig.setAclReplicationToken(UUID.randomUUID().toString());
+            fullConfig.setAclDatacenter("dc");
+            fullConfig.setAclDefaultPolicy("deny");
+            fullConfig.setAclDownPolicy("extend-cache");
+            builder.join("10.0.0.1", true);
+        }
+        config = builder.buildConfig();
+        command = builder.command;
+    }
+
+    /**
+     * Same serialization as done for every container in configure()
+     */
+    @Benchmark
+    public String serializeConfiguration() {
+        return new Gson().toJson(config);
+    }
+
+    @Benchmark
+    public ConsulConfigurationSnapshot freezeConfiguration() {
+        return config.freeze();
+    }
+
+    @Benchmark
+    public String buildCommand() {
+        return command.toCommand();
+    }
+
+    @Benchmark
+    public ConsulContainer buildContainer() {
+        return builder.build();
+    }
+
+    @Benchmark
+    public ConsulContainer configureContainer() {
+        ConsulContainer container = builder.build();
+        container.configure();
+        return container;
+    }
+}
@@ -0,0 +1,36 @@
+package org.jetax.testcontainers.consul;
+
+import java.time.Duration;
+
+/**
+ * Exponential backoff for polling loops: delay grows while nothing changes and
+ * drops back to the initial value on {@link #reset()}, so that progress is picked up quickly.
+ */
+class Backoff {
+
+    private static final Duration DEFAULT_INITIAL = Duration.ofMillis(25);
+    private static final Duration DEFAULT_MAX = Duration.ofSeconds(1);
+
+    private final long initialMillis;
+    private final long maxMillis;
+    private long nextMillis;
+
+    Backoff(Duration initial, Duration max) {
+        this.initialMillis = initial.toMillis();
+        this.maxMillis = max.toMillis();
+        this.nextMillis = initialMillis;
+    }
+
+    Backoff() {
+        this(DEFAULT_INITIAL, DEFAULT_MAX);
+    }
+
+    void pause() throws InterruptedException {
+        Thread.sleep(nextMillis);
+        nextMillis = Math.min(maxMillis, nextMillis * 2);
+    }
+
+    void reset() {
+        nextMillis = initialMillis;
+    }
+}
@@ -0,0 +1,73 @@
+package org.jetax.testcontainers.consul;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of {@link ConsulCluster#start()}: cluster level phases and per node timings.
+ */
+public class ClusterStartupReport {
+
+    private final Duration total;
+    private final Duration timeToQuorum;
+    private final Map<StartupPhase, Duration> clusterTimings;
+    private final Map<ConsulContainer, Map<StartupPhase, Duration>> nodeTimings;
+
+    ClusterStartupReport(Duration total, Duration timeToQuorum, Map<StartupPhase, Duration> clusterTimings,
+                         Map<ConsulContainer, Map<StartupPhase, Duration>> nodeTimings) {
+        this.total = total;
+        this.timeToQuorum = timeToQuorum;
+        this.clusterTimings = Collections.unmodifiableMap(clusterTimings);
+        this.nodeTimings = Collections.unmodifiableMap(new LinkedHashMap<>(nodeTimings));
+    }
+
+    public Duration getTotal() {
+        return total;
+    }
+
+    public Map<StartupPhase, Duration> getClusterTimings() {
+        return clusterTimings;
+    }
+
+    public Map<ConsulContainer, Map<StartupPhase, Duration>> getNodeTimings() {
+        return nodeTimings;
+    }
+
+    /**
+     * @return time from start of the cluster till quorum is reached, excluding KV seeding which follows it,
+     * null if quorum was not awaited
+     */
+    public Duration getTimeToQuorum() {
+        return timeToQuorum;
+    }
+
+    /**
+     * @return node with the longest sum of startup phases
+     */
+    public ConsulContainer getSlowestNode() {
+        return nodeTimings.entrySet().stream()
+                .max(Comparator.comparing(e -> sum(e.getValue())))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    private static Duration sum(Map<StartupPhase, Duration> timings) {
+        return timings.values().stream().reduce(Duration.ZERO, Duration::plus);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder("Cluster started in ").append(total.toMillis()).append(" ms");
+        clusterTimings.forEach((phase, duration) ->
+                report.append(", ").append(phase).append(' ').append(duration.toMillis()).append(" ms"));
+        ConsulContainer slowest = getSlowestNode();
+        if (slowest != null) {
+            report.append("; slowest node ").append(slowest.getContainerId())
+                    .append(' ').append(nodeTimings.get(slowest));
+        }
+        return report.toString();
+    }
+}
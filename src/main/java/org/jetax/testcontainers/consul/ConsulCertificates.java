@@ -0,0 +1,173 @@
+package org.jetax.testcontainers.consul;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CA and node certificates generated in memory, so that tests need no TLS files. A single CA is created per JVM
+ * and node certificates are cached by their names, so containers of the same configuration reuse them.
+ * Cluster nodes have distinct network aliases, so every node of a cluster gets its own certificate.
+ * <p>
+ * Node certificates are valid for {@code server.<datacenter>.consul} (or {@code client.<datacenter>.consul}),
+ * {@code localhost}, {@code 127.0.0.1} and container network aliases.
+ */
+public final class ConsulCertificates {
+
+    private static final String KEY_ALGORITHM = "EC";
+    private static final String CURVE = "secp256r1";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+    private static final Duration VALIDITY = Duration.ofDays(365);
+
+    private static volatile ConsulCertificates instance;
+
+    private final KeyPair caKeys;
+    private final X509CertificateHolder caCertificate;
+    private final byte[] caPem;
+    private final AtomicLong serial = new AtomicLong(1);
+    private final Map<String, NodeCertificate> nodeCertificates = new ConcurrentHashMap<>();
+
+    private ConsulCertificates() {
+        try {
+            this.caKeys = generateKeys();
+            X500Name name = new X500Name("CN=Testcontainers Consul CA");
+            X509v3CertificateBuilder builder = certificateBuilder(name, name, caKeys.getPublic())
+                    .addExtension(Extension.basicConstraints, true, new BasicConstraints(true))
+                    .addExtension(Extension.keyUsage, true,
+                            new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign | KeyUsage.digitalSignature));
+            this.caCertificate = builder.build(signer(caKeys.getPrivate()));
+            this.caPem = pem(caCertificate);
+        } catch (GeneralSecurityException | IOException | OperatorCreationException e) {
+            throw new RuntimeException("Failed to generate CA certificate", e);
+        }
+    }
+
+    public static ConsulCertificates getInstance() {
+        if (instance == null) {
+            synchronized (ConsulCertificates.class) {
+                if (instance == null) {
+                    instance = new ConsulCertificates();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return PEM encoded CA certificate, which should be trusted by clients of containers
+     */
+    public byte[] getCaPem() {
+        return caPem.clone();
+    }
+
+    /**
+     * @param server whether certificate is for server agent, which Consul verifies by {@code server.<dc>.consul}
+     * @param names  additional DNS names of the node
+     */
+    public NodeCertificate nodeCertificate(String datacenter, boolean server, Collection<String> names) {
+        String dc = datacenter != null ? datacenter : "dc1";
+        TreeSet<String> dnsNames = new TreeSet<>(names);
+        dnsNames.add(String.format("%s.%s.consul", server ? "server" : "client", dc));
+        dnsNames.add("localhost");
+        return nodeCertificates.computeIfAbsent(String.join(",", dnsNames), key -> generate(dnsNames));
+    }
+
+    private NodeCertificate generate(Collection<String> dnsNames) {
+        try {
+            KeyPair keys = generateKeys();
+            List<GeneralName> altNames = new ArrayList<>();
+            for (String dnsName : dnsNames) {
+                altNames.add(new GeneralName(GeneralName.dNSName, dnsName));
+            }
+            altNames.add(new GeneralName(GeneralName.iPAddress, "127.0.0.1"));
+
+            X509v3CertificateBuilder builder = certificateBuilder(caCertificate.getSubject(),
+                    new X500Name("CN=" + dnsNames.iterator().next()), keys.getPublic())
+                    .addExtension(Extension.basicConstraints, true, new BasicConstraints(false))
+                    .addExtension(Extension.keyUsage, true,
+                            new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment))
+                    .addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(
+                            new KeyPurposeId[]{KeyPurposeId.id_kp_serverAuth, KeyPurposeId.id_kp_clientAuth}))
+                    .addExtension(Extension.subjectAlternativeName, false,
+                            new GeneralNames(altNames.toArray(new GeneralName[0])));
+            return new NodeCertificate(pem(builder.build(signer(caKeys.getPrivate()))), pem(keys.getPrivate()));
+        } catch (GeneralSecurityException | IOException | OperatorCreationException e) {
+            throw new RuntimeException("Failed to generate node certificate", e);
+        }
+    }
+
+    private JcaX509v3CertificateBuilder certificateBuilder(X500Name issuer, X500Name subject, PublicKey key) {
+        Instant now = Instant.now();
+        return new JcaX509v3CertificateBuilder(issuer, BigInteger.valueOf(serial.getAndIncrement()),
+                Date.from(now.minus(Duration.ofDays(1))), Date.from(now.plus(VALIDITY)), subject, key);
+    }
+
+    private static KeyPair generateKeys() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(KEY_ALGORITHM);
+        generator.initialize(new ECGenParameterSpec(CURVE));
+        return generator.generateKeyPair();
+    }
+
+    private static ContentSigner signer(PrivateKey key) throws OperatorCreationException {
+        return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(key);
+    }
+
+    private static byte[] pem(Object object) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JcaPEMWriter writer = new JcaPEMWriter(out)) {
+            writer.writeObject(object);
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static class NodeCertificate {
+        private final byte[] certificatePem;
+        private final byte[] keyPem;
+
+        NodeCertificate(byte[] certificatePem, byte[] keyPem) {
+            this.certificatePem = certificatePem;
+            this.keyPem = keyPem;
+        }
+
+        public byte[] getCertificatePem() {
+            return certificatePem.clone();
+        }
+
+        public byte[] getKeyPem() {
+            return keyPem.clone();
+        }
+    }
+}
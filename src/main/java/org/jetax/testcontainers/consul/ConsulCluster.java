@@ -1,55 +1,628 @@
 package org.jetax.testcontainers.consul;
 
 import com.github.dockerjava.api.model.ContainerNetwork;
+import com.google.gson.Gson;
 import org.testcontainers.containers.Network;
-import org.testcontainers.shaded.com.google.common.collect.ImmutableList;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 public class ConsulCluster {
 
+    private static final Duration DEFAULT_QUORUM_TIMEOUT = Duration.ofMinutes(1);
+    private static final String LEADER_PATH = "/v1/status/leader";
+    private static final String PEERS_PATH = "/v1/status/peers";
+    private static final String LEAVE_PATH = "/v1/agent/leave";
+    private static final String RAFT_PEER_PATH = "/v1/operator/raft/peer";
+    private static final int RAFT_PORT = 8300;
+    private static final Gson GSON = new Gson();
+
     private int size;
+    private Integer servers;
+    private boolean ownNetwork;
     private Supplier<ConsulContainer> containerCreator;
-    private ConsulContainer[] containers;
+    private final List<ConsulContainer> containers = new CopyOnWriteArrayList<>();
     private Network network;
+    private ExecutorService executor;
+    private Integer parallelism;
+    private Integer expectedPeers;
+    private Duration quorumTimeout;
+    private byte[] baseline;
+    private final List<StartupListener> startupListeners = new CopyOnWriteArrayList<>();
+    private ClusterStartupReport startupReport;
+    private final List<KVSource> kvSeeds = new ArrayList<>();
+    private volatile List<CompletableFuture<ConsulContainer>> nodeFutures = Collections.emptyList();
+    private NetworkFaults faults;
+    private String clusterId;
+    private final List<String> serverAliases = new ArrayList<>();
+    private int nodesCreated;
 
     public ConsulCluster(int size, Supplier<ConsulContainer> containerCreator, Network network) {
         this.size = size;
-        this.containers = new ConsulContainer[size];
         this.containerCreator = containerCreator;
         this.network = network;
     }
 
+    /**
+     * Cluster of servers started with {@code -bootstrap-expect} followed by client agents. All nodes are started
+     * at once and retry joining servers by network aliases, so there is no seed node. Start waits for leader
+     * election among servers, unless {@link #waitingForQuorum(Duration)} is configured otherwise.
+     *
+     * @param network network shared by nodes, a new one is created and removed on stop if null
+     */
+    public ConsulCluster(int servers, int clients, Supplier<ConsulContainer> containerCreator, Network network) {
+        this(servers + clients, containerCreator, network != null ? network : Network.newNetwork());
+        this.servers = servers;
+        this.ownNetwork = network == null;
+        this.expectedPeers = servers;
+        this.quorumTimeout = DEFAULT_QUORUM_TIMEOUT;
+    }
+
+    /**
+     * Executor used to start and stop nodes concurrently. If not set, a pool limited by
+     * {@link #withParallelism(int)} is created for every start/stop and shut down afterwards.
+     */
+    public ConsulCluster withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Max number of nodes started or stopped at the same time, all of them by default.
+     */
+    public ConsulCluster withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new RuntimeException(String.format("Invalid parallelism: %s", parallelism));
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Makes {@link #start()} return only after every node reports the same leader and
+     * a raft quorum of all cluster servers.
+     */
+    public ConsulCluster waitingForQuorum(Duration timeout) {
+        return waitingForQuorum(servers != null ? servers : size, timeout);
+    }
+
+    public ConsulCluster waitingForQuorum(int expectedPeers, Duration timeout) {
+        this.expectedPeers = expectedPeers;
+        this.quorumTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Listener receives phase timings of every node, cluster phases and final {@link ClusterStartupReport}
+     */
+    public ConsulCluster withStartupListener(StartupListener listener) {
+        this.startupListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * KV pairs written through the first node once all nodes are started, before {@link #start()} returns
+     */
+    public ConsulCluster withKVSeed(KVSource source) {
+        this.kvSeeds.add(source);
+        return this;
+    }
+
+    /**
+     * Grants nodes capability to change their network, so that faults can be injected with {@link #faults()}.
+     * Fault tooling is installed into containers on first use.
+     */
+    public ConsulCluster withNetworkFaults() {
+        if (this.faults == null) {
+            this.faults = new NetworkFaults(this);
+        }
+        return this;
+    }
+
+    /**
+     * @return controls of latency, packet loss and partitions between nodes
+     */
+    public NetworkFaults faults() {
+        if (this.faults == null) {
+            throw new RuntimeException("Network faults are not enabled, see withNetworkFaults()");
+        }
+        return faults;
+    }
+
+    /**
+     * @return report of the last successful {@link #start()}
+     */
+    public ClusterStartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    /**
+     * Starts cluster in background. Returned future completes once {@link #start()} would return,
+     * futures of single nodes are available from {@link #getNodeFutures()} right away.
+     */
+    public CompletableFuture<ConsulCluster> startAsync() {
+        List<CompletableFuture<ConsulContainer>> futures = newNodeFutures();
+        return CompletableFuture.supplyAsync(() -> {
+            start(futures);
+            return this;
+        }, ConsulContainer.ASYNC_EXECUTOR);
+    }
+
+    /**
+     * @return futures completed when respective node is started, in order of {@link #getContainers()}
+     */
+    public List<CompletableFuture<ConsulContainer>> getNodeFutures() {
+        return nodeFutures;
+    }
+
     public void start() {
-        String firstAddr = bootstrapFirst();
+        start(newNodeFutures());
+    }
 
-        for (int i = 1; i < size; i++) {
-            containers[i] = bootstrapNext(firstAddr);
+    private List<CompletableFuture<ConsulContainer>> newNodeFutures() {
+        List<CompletableFuture<ConsulContainer>> futures = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        this.nodeFutures = Collections.unmodifiableList(futures);
+        return futures;
+    }
+
+    private void start(List<CompletableFuture<ConsulContainer>> futures) {
+        long startedAt = System.nanoTime();
+        Map<StartupPhase, Duration> clusterTimings = new EnumMap<>(StartupPhase.class);
+        try {
+            long phaseStartedAt = System.nanoTime();
+            List<Runnable> nodes = new ArrayList<>();
+            containers.clear();
+            if (servers != null) {
+                prepareMembers();
+            } else {
+                clusterId = UUID.randomUUID().toString().substring(0, 8);
+                nodesCreated = 0;
+                String firstAddr = bootstrapFirst();
+                futures.get(0).complete(containers.get(0));
+                phaseStartedAt = clusterPhaseCompleted(clusterTimings, StartupPhase.SEED, phaseStartedAt);
+                for (int i = 1; i < size; i++) {
+                    containers.add(prepareNext(firstAddr));
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                ConsulContainer container = containers.get(i);
+                CompletableFuture<ConsulContainer> future = futures.get(i);
+                if (!future.isDone()) {
+                    nodes.add(() -> {
+                        startNode(container);
+                        future.complete(container);
+                    });
+                }
+            }
+            runAll(nodes, "start");
+            phaseStartedAt = clusterPhaseCompleted(clusterTimings, StartupPhase.JOIN, phaseStartedAt);
+
+            Duration timeToQuorum = null;
+            if (quorumTimeout != null) {
+                awaitQuorum(expectedPeers, quorumTimeout);
+                phaseStartedAt = clusterPhaseCompleted(clusterTimings, StartupPhase.QUORUM, phaseStartedAt);
+                timeToQuorum = Duration.ofNanos(phaseStartedAt - startedAt);
+            }
+
+            if (!kvSeeds.isEmpty()) {
+                for (KVSource source : kvSeeds) {
+                    containers.get(0).seed(source);
+                }
+                clusterPhaseCompleted(clusterTimings, StartupPhase.KV_SEED, phaseStartedAt);
+            }
+
+            Map<ConsulContainer, Map<StartupPhase, Duration>> nodeTimings = new LinkedHashMap<>();
+            for (ConsulContainer container : containers) {
+                nodeTimings.put(container, container.getStartupTimings());
+            }
+            startupReport = new ClusterStartupReport(Duration.ofNanos(System.nanoTime() - startedAt), timeToQuorum,
+                    clusterTimings, nodeTimings);
+            for (StartupListener listener : startupListeners) {
+                listener.onClusterStarted(this, startupReport);
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+            // nodes which failed on their own have dumped logs already
+            for (ConsulContainer container : containers) {
+                if (container.isRunning()) {
+                    container.dumpLogs("is stopped after cluster failed to start");
+                }
+            }
+            try {
+                stop();
+            } catch (RuntimeException stopFailure) {
+                e.addSuppressed(stopFailure);
+            }
+            throw e;
         }
     }
 
     public void stop() {
+        if (faults != null) {
+            faults.healQuietly();
+        }
+        List<Runnable> tasks = new ArrayList<>();
         for (ConsulContainer consulContainer : containers) {
-            if (consulContainer != null) {
-                consulContainer.stop();
+            tasks.add(consulContainer::stop);
+        }
+        RuntimeException failure = null;
+        try {
+            runAll(tasks, "stop");
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        if (ownNetwork) {
+            try {
+                network.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new RuntimeException("Failed to close cluster network", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
 
+    /**
+     * @return current nodes, servers first in server and client topology
+     */
     public List<ConsulContainer> getContainers() {
-        return Arrays.asList(containers);
+        return Collections.unmodifiableList(new ArrayList<>(containers));
+    }
+
+    /**
+     * Adds a server node to running cluster, or a dev node joining the others in seed topology.
+     * Returns once the node is started and, if quorum is awaited by {@link #waitingForQuorum(Duration)},
+     * once the cluster reached quorum including it.
+     */
+    public synchronized ConsulContainer addNode() {
+        return addNode(true);
+    }
+
+    /**
+     * Adds a client agent, only supported in server and client topology
+     */
+    public synchronized ConsulContainer addClient() {
+        if (servers == null) {
+            throw new RuntimeException("Client agents require cluster of servers and clients");
+        }
+        return addNode(false);
+    }
+
+    /**
+     * Removes node gracefully: agent leaves the cluster, the server is removed from raft peers if it is
+     * still listed, and the container is stopped once remaining nodes agree on quorum.
+     */
+    public synchronized void removeNode(ConsulContainer node) {
+        if (!containers.contains(node)) {
+            throw new RuntimeException("Node is not part of cluster");
+        }
+        if (containers.size() == 1) {
+            throw new RuntimeException("Can't remove the last node, stop cluster instead");
+        }
+        if (faults != null) {
+            try {
+                // node has to reach peers to leave
+                faults.heal(node);
+            } catch (RuntimeException e) {
+                // node may be down, rules of its peers are removed anyway
+            }
+        }
+        boolean server = isServer(node);
+        String raftAddress = getAddress(node) + ":" + RAFT_PORT;
+        try {
+            new ConsulHttpClient(node).put(LEAVE_PATH, (byte[]) null);
+        } catch (IOException e) {
+            // node may be down already, raft peer is removed below anyway
+        }
+        containers.remove(node);
+        if (faults != null) {
+            faults.membershipChanged();
+        }
+        if (server) {
+            removeRaftPeer(raftAddress);
+            if (servers != null) {
+                servers--;
+            }
+            if (expectedPeers != null) {
+                expectedPeers = Math.min(expectedPeers, serverCount());
+            }
+        }
+        size--;
+        try {
+            awaitMembershipChange();
+        } finally {
+            node.stop();
+        }
+    }
+
+    /**
+     * Replaces every node with a new one, one at a time, followers first and the leader last. Every new node
+     * is added before the old one is removed, so that quorum and writes are kept during the restart.
+     */
+    public synchronized void rollingRestart() {
+        List<ConsulContainer> order = new ArrayList<>(containers);
+        ConsulContainer leader = getLeader();
+        if (leader != null && order.remove(leader)) {
+            order.add(leader);
+        }
+        for (ConsulContainer node : order) {
+            addNode(isServer(node));
+            removeNode(node);
+        }
+    }
+
+    private ConsulContainer addNode(boolean server) {
+        if (containers.isEmpty()) {
+            throw new RuntimeException("Cluster is not started");
+        }
+        ConsulContainer container;
+        if (servers != null) {
+            container = prepareMember(server, null);
+        } else {
+            container = prepareNext(getAddress(containers.get(0)));
+        }
+        startNode(container);
+        containers.add(container);
+        size++;
+        if (faults != null) {
+            faults.membershipChanged();
+        }
+        if (server) {
+            if (servers != null) {
+                servers++;
+            }
+            // quorum awaited on start keeps its margin, in seed topology every node is a server
+            if (expectedPeers != null) {
+                expectedPeers = Math.min(expectedPeers + 1, serverCount());
+            }
+        }
+        awaitMembershipChange();
+        return container;
+    }
+
+    private void awaitMembershipChange() {
+        if (quorumTimeout != null) {
+            awaitQuorum(expectedPeers, quorumTimeout);
+        }
+    }
+
+    /**
+     * Leave removes server from raft peers on its own, the peer is removed explicitly only if it is still listed.
+     * Both may fail while a new leader is elected after the leader left, so it is retried with backoff.
+     */
+    private void removeRaftPeer(String raftAddress) {
+        Duration timeout = quorumTimeout != null ? quorumTimeout : DEFAULT_QUORUM_TIMEOUT;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Backoff backoff = new Backoff();
+        while (true) {
+            Exception failure = null;
+            try {
+                if (!Arrays.asList(query(PEERS_PATH, String[].class)).contains(raftAddress)) {
+                    return;
+                }
+                new ConsulHttpClient(containers.get(0)).delete(RAFT_PEER_PATH + "?address=" + raftAddress);
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new RuntimeException(String.format("Failed to remove raft peer %s in %s", raftAddress, timeout),
+                        failure);
+            }
+            try {
+                backoff.pause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while removing raft peer", e);
+            }
+        }
+    }
+
+    private int serverCount() {
+        return (int) containers.stream().filter(ConsulCluster::isServer).count();
+    }
+
+    private static boolean isServer(ConsulContainer node) {
+        ConsulCommand command = node.getConsulCommand();
+        return command == null || command.isDev() || command.isServer();
+    }
+
+    /**
+     * @return current raft leader as seen by the first reachable node, null if there is no leader
+     */
+    public ConsulContainer getLeader() {
+        String leader = query(LEADER_PATH, String.class);
+        return leader != null && !leader.isEmpty() ? findByRaftAddress(leader) : null;
+    }
+
+    /**
+     * @return raft peers which are not the leader
+     */
+    public List<ConsulContainer> getFollowers() {
+        ConsulContainer leader = getLeader();
+        List<ConsulContainer> followers = new ArrayList<>(getPeers());
+        followers.remove(leader);
+        return followers;
+    }
+
+    /**
+     * @return nodes which are raft peers, i.e. servers
+     */
+    public List<ConsulContainer> getPeers() {
+        String[] peers = query(PEERS_PATH, String[].class);
+        List<ConsulContainer> result = new ArrayList<>();
+        if (peers != null) {
+            for (String peer : peers) {
+                ConsulContainer container = findByRaftAddress(peer);
+                if (container != null) {
+                    result.add(container);
+                }
+            }
+        }
+        return result;
+    }
+
+    private <T> T query(String path, Class<T> type) {
+        RuntimeException failure = null;
+        for (ConsulContainer container : containers) {
+            if (container == null) {
+                continue;
+            }
+            try {
+                return GSON.fromJson(new ConsulHttpClient(container).get(path), type);
+            } catch (IOException | RuntimeException e) {
+                // node may be stopped, paused or restarting
+                failure = new RuntimeException(String.format("Failed to read %s", path), e);
+            }
+        }
+        throw failure != null ? failure : new RuntimeException("Cluster is not started");
+    }
+
+    /**
+     * @param raftAddress address as reported by status endpoints, e.g. {@code 172.18.0.2:8300}
+     */
+    private ConsulContainer findByRaftAddress(String raftAddress) {
+        String host = raftAddress.substring(0, raftAddress.lastIndexOf(':'));
+        for (ConsulContainer container : containers) {
+            if (container != null && host.equals(getAddress(container))) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    private long clusterPhaseCompleted(Map<StartupPhase, Duration> timings, StartupPhase phase, long phaseStartedAt) {
+        long now = System.nanoTime();
+        Duration duration = Duration.ofNanos(now - phaseStartedAt);
+        timings.put(phase, duration);
+        for (StartupListener listener : startupListeners) {
+            listener.onClusterPhase(this, phase, duration);
+        }
+        return now;
+    }
+
+    /**
+     * Saves raft snapshot of the cluster, snapshot requests are forwarded to the leader by any node.
+     */
+    public void captureBaseline() {
+        this.baseline = containers.get(0).snapshot();
+    }
+
+    /**
+     * Restores state saved by {@link #captureBaseline()}, it is replicated to all nodes by raft.
+     */
+    public void restoreBaseline() {
+        if (this.baseline == null) {
+            throw new RuntimeException("No baseline captured");
+        }
+        containers.get(0).restore(this.baseline);
+    }
+
+    /**
+     * Polls {@value #PEERS_PATH} and {@value #LEADER_PATH} of every node until all of them see
+     * at least {@code expectedPeers} raft peers and agree on the leader. Polling backs off
+     * while nothing changes and speeds up again as soon as the cluster state moves.
+     */
+    public void awaitQuorum(int expectedPeers, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Backoff backoff = new Backoff();
+        String lastState = null;
+
+        while (true) {
+            String state = quorumState(expectedPeers);
+            if (state == null) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new RuntimeException(String.format("Cluster has not reached quorum of %s peers in %s: %s",
+                        expectedPeers, timeout, state));
+            }
+            if (!state.equals(lastState)) {
+                backoff.reset();
+                lastState = state;
+            }
+            try {
+                backoff.pause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for cluster quorum", e);
+            }
+        }
+    }
+
+    /**
+     * @return null if quorum is reached, otherwise description of what is missing
+     */
+    private String quorumState(int expectedPeers) {
+        Set<String> leaders = new HashSet<>();
+        List<Integer> peerCounts = new ArrayList<>();
+        if (containers.size() < size) {
+            return "not all nodes are created";
+        }
+        for (ConsulContainer container : containers) {
+            try {
+                ConsulHttpClient client = new ConsulHttpClient(container);
+                leaders.add(GSON.fromJson(client.get(LEADER_PATH), String.class));
+                peerCounts.add(GSON.fromJson(client.get(PEERS_PATH), String[].class).length);
+            } catch (IOException | RuntimeException e) {
+                return String.format("node %s is not reachable: %s", container.getContainerId(), e.getMessage());
+            }
+        }
+
+        if (leaders.size() != 1 || leaders.contains("") || leaders.contains(null) ||
+                peerCounts.stream().anyMatch(count -> count < expectedPeers)) {
+            return String.format("leaders %s, peers %s", leaders, peerCounts);
+        }
+        return null;
+    }
+
+    private void startNode(ConsulContainer container) {
+        container.start();
+        if (faults != null) {
+            faults.install(container);
+        }
     }
 
     private String bootstrapFirst() {
         ConsulContainer first = containerCreator.get();
-        if (this.network != null) first.withNetwork(network);
-        first.start();
-        containers[0] = first;
-        Map<String, ContainerNetwork> nets = first.getContainerInfo().getNetworkSettings().getNetworks();
+        customize(first);
+        withSeedNodeAlias(first);
+        containers.add(first);
+        startNode(first);
+        return getAddress(first);
+    }
+
+    /**
+     * @return IP address of node in cluster network
+     */
+    String getAddress(ConsulContainer container) {
+        Map<String, ContainerNetwork> nets = container.getContainerInfo().getNetworkSettings().getNetworks();
         if (network != null) {
             if (nets.containsKey(network.getId())) {
                 return nets.get(network.getId()).getIpAddress();
@@ -59,15 +632,122 @@ public class ConsulCluster {
         return nets.values().stream().findFirst().get().getIpAddress();
     }
 
-    private ConsulContainer bootstrapNext(String address) {
-        ConsulContainer container = containerCreator.get();
+    private void customize(ConsulContainer container) {
         if (this.network != null) container.withNetwork(network);
-        ConsulCommand command = container.getConsulCommand();
+        startupListeners.forEach(container::withStartupListener);
+        if (faults != null) {
+            faults.prepare(container);
+        }
+    }
+
+    /**
+     * Containers are created on the calling thread, as suppliers are not required to be thread safe,
+     * only {@link ConsulContainer#start()} is run concurrently.
+     */
+    private ConsulContainer prepareNext(String address) {
+        ConsulContainer container = containerCreator.get();
+        customize(container);
+        withSeedNodeAlias(container);
+        // command may be shared between nodes created by the same builder
+        ConsulCommand command = container.getConsulCommand() != null ?
+                new ConsulCommand(container.getConsulCommand()) :
+                new ConsulCommand();
         command.setJoin(address);
         command.setRetryJoin(true);
-        container.start();
+        container.setConsulCommand(command);
         return container;
     }
 
+    /**
+     * Seed topology nodes join by address, alias only makes them distinct, e.g. in names of their TLS certificates
+     */
+    private void withSeedNodeAlias(ConsulContainer container) {
+        container.withNetworkAliases(String.format("consul-%s-node-%s", clusterId, nodesCreated++));
+    }
+
+    /**
+     * Creates all nodes of server and client topology, servers first. Every node retries joining
+     * all servers by their network aliases, so nodes can be started in any order.
+     */
+    private void prepareMembers() {
+        clusterId = UUID.randomUUID().toString().substring(0, 8);
+        nodesCreated = 0;
+        serverAliases.clear();
+        for (int i = 0; i < servers; i++) {
+            serverAliases.add(String.format("consul-%s-server-%s", clusterId, i));
+        }
 
+        for (int i = 0; i < size; i++) {
+            boolean server = i < servers;
+            containers.add(prepareMember(server, server ? servers : null));
+        }
+    }
+
+    /**
+     * @param bootstrapExpect only for servers of initial cluster, servers added later join the existing leader
+     */
+    private ConsulContainer prepareMember(boolean server, Integer bootstrapExpect) {
+        int index = nodesCreated++;
+        String alias = server && index < serverAliases.size() ?
+                serverAliases.get(index) :
+                String.format("consul-%s-%s-%s", clusterId, server ? "server" : "client", index);
+        if (server && !serverAliases.contains(alias)) {
+            // nodes added later can join through this server after the initial ones are replaced
+            serverAliases.add(alias);
+        }
+
+        ConsulContainer container = containerCreator.get();
+        customize(container);
+        container.withNetworkAliases(alias);
+
+        ConsulCommand command = container.getConsulCommand() != null ?
+                new ConsulCommand(container.getConsulCommand()) :
+                new ConsulCommand();
+        command.setDev(false);
+        command.setServer(server);
+        command.setBootstrapExpect(bootstrapExpect);
+        command.setJoin(null);
+        command.setRetryJoinAddresses(serverAliases);
+        container.setConsulCommand(command);
+        return container;
+    }
+
+    private void runAll(List<Runnable> tasks, String action) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        ExecutorService pool = this.executor != null ?
+                this.executor :
+                Executors.newFixedThreadPool(Math.min(tasks.size(), parallelism != null ? parallelism : tasks.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(task));
+            }
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add(e);
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                RuntimeException ex = new RuntimeException(String.format("Failed to %s %s of %s cluster nodes",
+                        action, failures.size(), tasks.size()), failures.get(0));
+                failures.stream().skip(1).forEach(ex::addSuppressed);
+                throw ex;
+            }
+        } finally {
+            if (pool != this.executor) {
+                pool.shutdownNow();
+            }
+        }
+    }
 }
@@ -1,16 +1,32 @@
 package org.jetax.testcontainers.consul;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ConsulCommand {
 
     private boolean dev;
     private boolean ui;
     private String join;
     private boolean retryJoin;
+    private boolean server;
+    private Integer bootstrapExpect;
+    private List<String> retryJoinAddresses = new ArrayList<>();
 
     public ConsulCommand() {
         this.dev = true;
     }
 
+    public ConsulCommand(ConsulCommand other) {
+        this.dev = other.dev;
+        this.ui = other.ui;
+        this.join = other.join;
+        this.retryJoin = other.retryJoin;
+        this.server = other.server;
+        this.bootstrapExpect = other.bootstrapExpect;
+        this.retryJoinAddresses = new ArrayList<>(other.retryJoinAddresses);
+    }
+
     public Boolean isDev() {
         return dev;
     }
@@ -43,12 +59,53 @@ public class ConsulCommand {
         this.retryJoin = retryJoin;
     }
 
+    /**
+     * Runs agent in server mode, agent which is neither dev nor server is a client
+     */
+    public Boolean isServer() {
+        return server;
+    }
+
+    public void setServer(Boolean server) {
+        this.server = server;
+    }
+
+    public Integer getBootstrapExpect() {
+        return bootstrapExpect;
+    }
+
+    /**
+     * Number of servers to wait for before electing a leader, applies to server mode only
+     */
+    public void setBootstrapExpect(Integer bootstrapExpect) {
+        this.bootstrapExpect = bootstrapExpect;
+    }
+
+    public List<String> getRetryJoinAddresses() {
+        return retryJoinAddresses;
+    }
+
+    /**
+     * Addresses passed as separate {@code -retry-join} options, in addition to {@link #getJoin()}
+     */
+    public void setRetryJoinAddresses(List<String> retryJoinAddresses) {
+        this.retryJoinAddresses = new ArrayList<>(retryJoinAddresses);
+    }
+
     public String toCommand() {
         StringBuilder commandBuilder = new StringBuilder("agent -client 0.0.0.0");
         if (dev) {
             commandBuilder.append(" -dev");
-        } else if (ui) {
-            commandBuilder.append(" -ui");
+        } else {
+            if (server) {
+                commandBuilder.append(" -server");
+                if (bootstrapExpect != null) {
+                    commandBuilder.append(" -bootstrap-expect ").append(bootstrapExpect);
+                }
+            }
+            if (ui) {
+                commandBuilder.append(" -ui");
+            }
         }
 
         if (join != null && join.length() > 0) {
@@ -58,6 +115,10 @@ public class ConsulCommand {
             }
         }
 
+        for (String address : retryJoinAddresses) {
+            commandBuilder.append(" -retry-join ").append(address);
+        }
+
         return commandBuilder.toString();
     }
 }
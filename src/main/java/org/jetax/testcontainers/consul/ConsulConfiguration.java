@@ -23,6 +23,8 @@ public class ConsulConfiguration {
     private String certFile;
     @Setter(AccessLevel.PROTECTED) @SerializedName("ca_file")
     private String caFile;
+    @SerializedName("data_dir")
+    private String dataDir;
     @SerializedName("log_level")
     private String logLevel;
     @SerializedName("enable_debug")
@@ -42,6 +44,12 @@ public class ConsulConfiguration {
     private ACL acl;
     @SerializedName("dns")
     private DNS dns;
+    @SerializedName("performance")
+    private Performance performance;
+    @SerializedName("limits")
+    private Limits limits;
+    @SerializedName("telemetry")
+    private Telemetry telemetry;
 
     private transient TLSConfig tlsConfig;
 
@@ -82,6 +90,13 @@ public class ConsulConfiguration {
     public ConsulConfiguration() {
     }
 
+    /**
+     * @return immutable copy of current state with cached JSON rendering and hash
+     */
+    public ConsulConfigurationSnapshot freeze() {
+        return ConsulConfigurationSnapshot.of(this);
+    }
+
     @Data
     @NoArgsConstructor
     public static class Ports {
@@ -149,12 +164,45 @@ public class ConsulConfiguration {
         private String onlyPassing;
     }
 
+    @Data
+    @NoArgsConstructor
+    public static class Performance {
+        @SerializedName("raft_multiplier")
+        private Integer raftMultiplier;
+        @SerializedName("leave_drain_time")
+        private String leaveDrainTime;
+        @SerializedName("rpc_hold_timeout")
+        private String rpcHoldTimeout;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Limits {
+        /** Supported since 1.6.3 */
+        @SerializedName("http_max_conns_per_client")
+        private Integer httpMaxConnsPerClient;
+        @SerializedName("rpc_rate")
+        private Double rpcRate;
+        @SerializedName("rpc_max_burst")
+        private Integer rpcMaxBurst;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Telemetry {
+        @SerializedName("prometheus_retention_time")
+        private String prometheusRetentionTime;
+        @SerializedName("disable_hostname")
+        private Boolean disableHostname;
+    }
+
     /**
      * We can't use {@link ConsulConfiguration#caFile}, {@link ConsulConfiguration#certFile} and
      * {@link ConsulConfiguration#keyFile} as it is serialized to consul config, but we have to preserve
      * mapping from classpath resource to file in container.
      * Filenames from {@link TLSConfig} are copied to container and then automatically set up in
      * {@link ConsulConfiguration}.
+     * If {@code generated} is set, files are not read from classpath, but generated by {@link ConsulCertificates}.
      */
     @Data
     @NoArgsConstructor
@@ -162,9 +210,17 @@ public class ConsulConfiguration {
         private String caFile;
         private String certFile;
         private String keyFile;
+        private boolean generated;
+
+        public static TLSConfig generated() {
+            TLSConfig tlsConfig = new TLSConfig();
+            tlsConfig.setGenerated(true);
+            return tlsConfig;
+        }
 
         public boolean tlsEnabled() {
-            return StringUtils.isNotEmpty(keyFile) && StringUtils.isNotEmpty(certFile) && StringUtils.isNotEmpty(caFile);
+            return generated ||
+                    (StringUtils.isNotEmpty(keyFile) && StringUtils.isNotEmpty(certFile) && StringUtils.isNotEmpty(caFile));
         }
     }
 }
@@ -0,0 +1,108 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Immutable copy of {@link ConsulConfiguration} as it is passed to container, with JSON rendering and
+ * content hash computed once. Safe to share between threads and cluster nodes.
+ * <p>
+ * When TLS is enabled, certificate paths in rendered configuration point to files copied into container.
+ */
+public final class ConsulConfigurationSnapshot {
+
+    private static final Gson GSON = new Gson();
+
+    private final ConsulConfiguration configuration;
+    private final ConsulConfiguration.TLSConfig tlsConfig;
+    private final String json;
+    private final String hash;
+
+    private ConsulConfigurationSnapshot(ConsulConfiguration source) {
+        this.configuration = copy(source);
+        this.tlsConfig = source.getTlsConfig() != null ? copy(source.getTlsConfig()) : null;
+        if (this.tlsConfig != null && this.tlsConfig.tlsEnabled()) {
+            this.configuration.setCaFile(ConsulContainer.CA_FILE_NAME);
+            this.configuration.setCertFile(ConsulContainer.CERT_FILE_NAME);
+            this.configuration.setKeyFile(ConsulContainer.KEY_FILE_NAME);
+        }
+        this.json = GSON.toJson(this.configuration);
+        // TLS sources are not part of JSON, but containers differ if they differ
+        this.hash = sha256(this.json + '\n' + (tlsConfig != null ? GSON.toJson(tlsConfig) : ""));
+    }
+
+    public static ConsulConfigurationSnapshot of(ConsulConfiguration configuration) {
+        return new ConsulConfigurationSnapshot(configuration);
+    }
+
+    /**
+     * @return configuration rendered as expected by Consul agent
+     */
+    public String toJson() {
+        return json;
+    }
+
+    /**
+     * @return SHA-256 of rendered configuration and TLS sources, stable across JVMs
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return mutable copy of this snapshot
+     */
+    public ConsulConfiguration toConfiguration() {
+        ConsulConfiguration result = copy(configuration);
+        result.setTlsConfig(tlsConfig != null ? copy(tlsConfig) : null);
+        return result;
+    }
+
+    /**
+     * Frozen configuration itself, must not be modified
+     */
+    ConsulConfiguration view() {
+        return configuration;
+    }
+
+    /**
+     * Classpath resources for TLS files, must not be modified
+     */
+    ConsulConfiguration.TLSConfig tlsConfig() {
+        return tlsConfig;
+    }
+
+    private static ConsulConfiguration copy(ConsulConfiguration configuration) {
+        return GSON.fromJson(GSON.toJson(configuration), ConsulConfiguration.class);
+    }
+
+    private static ConsulConfiguration.TLSConfig copy(ConsulConfiguration.TLSConfig tlsConfig) {
+        return GSON.fromJson(GSON.toJson(tlsConfig), ConsulConfiguration.TLSConfig.class);
+    }
+
+    static String sha256(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ConsulConfigurationSnapshot && hash.equals(((ConsulConfigurationSnapshot) o).hash));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode();
+    }
+}
@@ -1,65 +1,257 @@
 package org.jetax.testcontainers.consul;
 
-import com.google.gson.Gson;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.jetax.testcontainers.consul.ConsulContainerOptions.ConsulContainerOption;
+import org.testcontainers.DockerClientFactory;
 import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.output.FrameConsumerResultCallback;
+import org.testcontainers.containers.output.OutputFrame;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.containers.wait.strategy.WaitStrategy;
 import org.testcontainers.utility.MountableFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import static org.jetax.testcontainers.consul.ConsulContainerOptions.LOCAL_CONFIG_PARAM_NAME;
 
-public class ConsulContainer extends GenericContainer<ConsulContainer> {
+public class ConsulContainer extends GenericContainer<ConsulContainer> implements ConsulEndpoint {
 
-    private static final String CONSUL_IMAGE = "consul";
-    private static final String CONSUL_VERSION = "1.4.0-rc1";
+    static final String CONSUL_IMAGE = ConsulImagePrefetcher.CONSUL_IMAGE;
+    static final String CONSUL_VERSION = "1.4.0-rc1";
+
+    /**
+     * Runs background starts, threads are created on demand as starts block for the whole boot
+     */
+    static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "consul-container-start");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private static final Integer DEFAULT_HTTP_PORT = 8500;
     private static final Integer DEFAULT_HTTPS_PORT = 8501;
     private static final Integer DEFAULT_DNS_PORT = 8600;
 
     private static final String HEALTH_CHECK_PATH = "/v1/status/leader";
+    private static final String SNAPSHOT_PATH = "/v1/snapshot";
 
-    private static final String CA_FILE_NAME = "/consul/config/ca";
-    private static final String CERT_FILE_NAME = "/consul/config/cert";
-    private static final String KEY_FILE_NAME = "/consul/config/key";
+    static final String CA_FILE_NAME = "/consul/config/ca";
+    static final String CERT_FILE_NAME = "/consul/config/cert";
+    static final String KEY_FILE_NAME = "/consul/config/key";
 
+    private final String imageName;
+    private ConsulConfigurationSnapshot configurationSnapshot;
+    /** frozen configuration of {@link #configurationSnapshot}, read only */
     private ConsulConfiguration consulConfiguration;
     private ConsulContainerOptions consulContainerOptions;
     private ConsulCommand consulCommand;
     private Integer waitTimeout;
+    private byte[] baseline;
+    private final List<StartupListener> startupListeners = new CopyOnWriteArrayList<>();
+    private final Map<StartupPhase, Duration> startupTimings =
+            Collections.synchronizedMap(new EnumMap<>(StartupPhase.class));
+    private volatile long phaseStartedAt;
+    private final List<KVSource> kvSeeds = new ArrayList<>();
+    private ConsulWatcher watcher;
+    /** state after {@link #restart()}, as container info of superclass is read only once on start */
+    private volatile InspectContainerResponse restartedInfo;
+    private ConsulLogCapture logCapture;
+    private ReadinessMode readinessMode = ReadinessMode.HTTP;
+    /** registered as log consumer on first use, as consumers can't be removed */
+    private LogReadinessWaitStrategy logReadiness;
+    private SeededImage seededImage;
+    /** whether current start is from {@link #seededImage}, otherwise it is captured after seeding */
+    private boolean startedFromSeededImage;
 
     public ConsulContainer() {
-        super(CONSUL_IMAGE + ":" + CONSUL_VERSION);
+        super(imageName(CONSUL_VERSION));
+        this.imageName = imageName(CONSUL_VERSION);
         this.consulContainerOptions = new ConsulContainerOptions();
     }
 
+    /**
+     * Configuration is copied, later changes to it are not visible to container
+     */
     public ConsulContainer(ConsulConfiguration consulConfiguration) {
         this();
-        this.consulConfiguration = consulConfiguration;
+        setConfigurationSnapshot(consulConfiguration != null ? consulConfiguration.freeze() : null);
     }
 
     public ConsulContainer(ConsulConfiguration consulConfiguration, ConsulContainerOptions consulContainerOptions,
                            ConsulCommand consulCommand,
                            String containerVersion, Integer waitTimeout) {
-        super(String.format("%s:%s", CONSUL_IMAGE, containerVersion != null ? containerVersion : CONSUL_VERSION));
-        this.consulConfiguration = consulConfiguration;
+        this(consulConfiguration != null ? consulConfiguration.freeze() : null, consulContainerOptions, consulCommand,
+                containerVersion, waitTimeout);
+    }
+
+    ConsulContainer(ConsulConfigurationSnapshot configurationSnapshot, ConsulContainerOptions consulContainerOptions,
+                    ConsulCommand consulCommand,
+                    String containerVersion, Integer waitTimeout) {
+        super(imageName(containerVersion != null ? containerVersion : CONSUL_VERSION));
+        this.imageName = imageName(containerVersion != null ? containerVersion : CONSUL_VERSION);
+        setConfigurationSnapshot(configurationSnapshot);
         this.consulContainerOptions = consulContainerOptions;
         this.consulCommand = consulCommand;
         this.waitTimeout = waitTimeout;
     }
 
+    static String imageName(String version) {
+        return ConsulImagePrefetcher.imageName(version);
+    }
+
+    private void setConfigurationSnapshot(ConsulConfigurationSnapshot configurationSnapshot) {
+        this.configurationSnapshot = configurationSnapshot;
+        this.consulConfiguration = configurationSnapshot != null ? configurationSnapshot.view() : null;
+    }
+
+    public ConsulConfigurationSnapshot getConfigurationSnapshot() {
+        return configurationSnapshot;
+    }
+
+    public ConsulContainer withStartupListener(StartupListener listener) {
+        this.startupListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Starts from image with state of this container after seeding, if one was captured before,
+     * see {@link ConsulContainerBuilder#withSeededImage(String, Consumer)}
+     */
+    ConsulContainer withSeededImage(SeededImage seededImage) {
+        this.seededImage = seededImage;
+        return this;
+    }
+
+    /**
+     * Keeps the most recent agent log lines, up to given number of bytes. Captured lines are logged
+     * if container fails to start.
+     */
+    public ConsulContainer withLogCapture(int maxBytes) {
+        this.logCapture = new ConsulLogCapture(maxBytes);
+        withLogConsumer(this.logCapture);
+        return this;
+    }
+
+    /**
+     * Selects how readiness is detected on start, {@link ReadinessMode#HTTP} by default
+     */
+    public ConsulContainer withReadiness(ReadinessMode mode) {
+        if (mode == ReadinessMode.LOG && this.logReadiness == null) {
+            this.logReadiness = new LogReadinessWaitStrategy(this, HEALTH_CHECK_PATH);
+            withLogConsumer(this.logReadiness);
+        }
+        this.readinessMode = mode;
+        return this;
+    }
+
+    /**
+     * @return captured logs or null if capture is not enabled with {@link #withLogCapture(int)}
+     */
+    public ConsulLogCapture getLogCapture() {
+        return logCapture;
+    }
+
+    /**
+     * KV pairs written after agent is up, before {@link #start()} returns
+     */
+    public ConsulContainer withKVSeed(KVSource source) {
+        this.kvSeeds.add(source);
+        return this;
+    }
+
+    /**
+     * @return durations of startup phases of the last {@link #start()}
+     */
+    public Map<StartupPhase, Duration> getStartupTimings() {
+        synchronized (startupTimings) {
+            return new EnumMap<>(startupTimings);
+        }
+    }
+
+    @Override
+    public void start() {
+        startupTimings.clear();
+        phaseStartedAt = System.nanoTime();
+        // blocks only if this version is being prefetched
+        ConsulImagePrefetcher prefetcher = ConsulImagePrefetcher.getInstance();
+        prefetcher.prefetchConfigured();
+        prefetcher.awaitPending(imageName);
+        if (seededImage != null) {
+            startedFromSeededImage = seededImage.exists();
+            setDockerImageName(startedFromSeededImage ? seededImage.getImageName() : imageName);
+        }
+        // resolves image, pulling it if needed; it is cached for the actual start
+        getDockerImageName();
+        phaseCompleted(StartupPhase.IMAGE_RESOLVE);
+        try {
+            super.start();
+        } catch (RuntimeException e) {
+            dumpLogs("failed to start");
+            throw e;
+        }
+    }
+
+    /**
+     * Logs captured agent output, if capture is enabled
+     */
+    void dumpLogs(String reason) {
+        if (logCapture != null) {
+            logger().error("Consul agent {} {}, captured log:{}{}", getContainerId(), reason,
+                    System.lineSeparator(), logCapture.dump());
+        }
+    }
+
+    /**
+     * Starts container in background, returned future completes when container is ready
+     */
+    public CompletableFuture<ConsulContainer> startAsync() {
+        return startAsync(ASYNC_EXECUTOR);
+    }
+
+    public CompletableFuture<ConsulContainer> startAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            start();
+            return this;
+        }, executor);
+    }
+
     @Override
     protected void configure() {
-        copyFiles();
+        phaseStartedAt = System.nanoTime();
         bindPorts();
         setEnv();
 
-        WaitStrategy wait = Wait.forHttp(HEALTH_CHECK_PATH)
-                .forStatusCode(200)
-                .forPort(getHttpPort());
+        WaitStrategy wait;
+        if (this.readinessMode == ReadinessMode.LOG) {
+            this.logReadiness.reset();
+            wait = this.logReadiness;
+        } else {
+            wait = Wait.forHttp(HEALTH_CHECK_PATH)
+                    .forStatusCode(200)
+                    .forPort(getHttpPort());
+        }
 
         if (this.waitTimeout != null) {
             wait = wait.withStartupTimeout(Duration.ofSeconds(waitTimeout));
@@ -69,7 +261,132 @@ public class ConsulContainer extends GenericContainer<ConsulContainer> {
             withCommand(consulCommand.toCommand());
         }
 
-        waitingFor(wait);
+        waitingFor(new TimedWaitStrategy(wait, this));
+        phaseCompleted(StartupPhase.CONFIGURE);
+    }
+
+    @Override
+    protected void containerIsCreated(String containerId) {
+        super.containerIsCreated(containerId);
+        copyFiles(containerId);
+        phaseCompleted(StartupPhase.CREATE);
+    }
+
+    @Override
+    protected void containerIsStarted(InspectContainerResponse containerInfo) {
+        super.containerIsStarted(containerInfo);
+        this.restartedInfo = null;
+        if (seededImage != null && startedFromSeededImage) {
+            seededImage.restore(this);
+            return;
+        }
+        for (KVSource source : kvSeeds) {
+            seed(source);
+        }
+        if (seededImage != null) {
+            seededImage.runFixture(this);
+            seededImage.capture(this);
+        }
+    }
+
+    /**
+     * Writes KV pairs in batched transactions, see {@link KVSeeder}
+     *
+     * @return number of written pairs
+     */
+    public long seed(KVSource source) {
+        return new KVSeeder().seed(this, source);
+    }
+
+    /**
+     * Watcher sharing threads between all watches of this container, it is closed on {@link #stop()}
+     */
+    public synchronized ConsulWatcher watcher() {
+        if (watcher == null) {
+            watcher = new ConsulWatcher(this);
+        }
+        return watcher;
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+            }
+        }
+        super.stop();
+        this.restartedInfo = null;
+    }
+
+    @Override
+    public InspectContainerResponse getContainerInfo() {
+        InspectContainerResponse info = this.restartedInfo;
+        return info != null ? info : super.getContainerInfo();
+    }
+
+    /**
+     * Kills agent abruptly, container is kept and can be started again with {@link #restart()}
+     */
+    void kill() {
+        DockerClientFactory.instance().client().killContainerCmd(getContainerId()).exec();
+    }
+
+    void pause() {
+        DockerClientFactory.instance().client().pauseContainerCmd(getContainerId()).exec();
+    }
+
+    void unpause() {
+        DockerClientFactory.instance().client().unpauseContainerCmd(getContainerId()).exec();
+    }
+
+    /**
+     * Starts killed container again, its address and mapped ports may change.
+     * Log capture and log readiness keep receiving lines of the new run.
+     */
+    void restart() {
+        DockerClient client = DockerClientFactory.instance().client();
+        // log stream of the previous run ended with it, lines logged before restart are not followed again
+        int since = (int) Instant.now().getEpochSecond();
+        if (this.logReadiness != null) {
+            this.logReadiness.reset();
+        }
+        client.startContainerCmd(getContainerId()).exec();
+        followLogs(client, since);
+        this.restartedInfo = client.inspectContainerCmd(getContainerId()).exec();
+    }
+
+    private void followLogs(DockerClient client, int since) {
+        if (logCapture == null && logReadiness == null) {
+            return;
+        }
+        FrameConsumerResultCallback callback = new FrameConsumerResultCallback();
+        for (Consumer<OutputFrame> consumer : Arrays.<Consumer<OutputFrame>>asList(logCapture, logReadiness)) {
+            if (consumer != null) {
+                callback.addConsumer(OutputFrame.OutputType.STDOUT, consumer);
+                callback.addConsumer(OutputFrame.OutputType.STDERR, consumer);
+            }
+        }
+        client.logContainerCmd(getContainerId())
+                .withStdOut(true)
+                .withStdErr(true)
+                .withFollowStream(true)
+                .withSince(since)
+                .exec(callback);
+    }
+
+    /**
+     * Records duration of phase ended now, next phase starts at the same moment
+     */
+    void phaseCompleted(StartupPhase phase) {
+        long now = System.nanoTime();
+        Duration duration = Duration.ofNanos(now - phaseStartedAt);
+        phaseStartedAt = now;
+        startupTimings.put(phase, duration);
+        for (StartupListener listener : startupListeners) {
+            listener.onPhase(this, phase, duration);
+        }
     }
 
 
@@ -87,28 +404,81 @@ public class ConsulContainer extends GenericContainer<ConsulContainer> {
             withEnv(opt.getOptionName(),
                     this.consulContainerOptions.getOrDefault(opt.getOptionName(), opt.getDefaultValue()));
         }
-        if (this.consulConfiguration != null) {
-            withEnv(LOCAL_CONFIG_PARAM_NAME, new Gson().toJson(this.consulConfiguration));
+        if (this.configurationSnapshot != null) {
+            withEnv(LOCAL_CONFIG_PARAM_NAME, this.configurationSnapshot.toJson());
         }
     }
 
-    private void copyFiles() {
-        if (this.consulConfiguration != null &&
-                this.consulConfiguration.getTlsConfig() != null &&
-                this.consulConfiguration.getTlsConfig().tlsEnabled()) {
-            withCopyFileToContainer(MountableFile.forClasspathResource(this.consulConfiguration.getTlsConfig().getCaFile()),
-                    CA_FILE_NAME);
-            withCopyFileToContainer(MountableFile.forClasspathResource(this.consulConfiguration.getTlsConfig().getCertFile()),
-                    CERT_FILE_NAME);
-            withCopyFileToContainer(MountableFile.forClasspathResource(this.consulConfiguration.getTlsConfig().getKeyFile()),
-                    KEY_FILE_NAME);
+    /**
+     * Paths of copied files are already set in configuration by {@link ConsulConfigurationSnapshot}.
+     * All files are sent in a single archive, before container is started.
+     */
+    private void copyFiles(String containerId) {
+        ConsulConfiguration.TLSConfig tlsConfig = this.configurationSnapshot != null ?
+                this.configurationSnapshot.tlsConfig() :
+                null;
+        if (tlsConfig == null || !tlsConfig.tlsEnabled()) {
+            return;
+        }
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try {
+            if (tlsConfig.isGenerated()) {
+                ConsulCertificates certificates = ConsulCertificates.getInstance();
+                ConsulCertificates.NodeCertificate node = certificates.nodeCertificate(
+                        this.consulConfiguration.getDatacenter(), isServerAgent(), getNetworkAliases());
+                files.put(CA_FILE_NAME, certificates.getCaPem());
+                files.put(CERT_FILE_NAME, node.getCertificatePem());
+                files.put(KEY_FILE_NAME, node.getKeyPem());
+            } else {
+                files.put(CA_FILE_NAME, readResource(tlsConfig.getCaFile()));
+                files.put(CERT_FILE_NAME, readResource(tlsConfig.getCertFile()));
+                files.put(KEY_FILE_NAME, readResource(tlsConfig.getKeyFile()));
+            }
 
-            this.consulConfiguration.setCaFile(CA_FILE_NAME);
-            this.consulConfiguration.setCertFile(CERT_FILE_NAME);
-            this.consulConfiguration.setKeyFile(KEY_FILE_NAME);
+            DockerClientFactory.instance().client().copyArchiveToContainerCmd(containerId)
+                    .withTarInputStream(new ByteArrayInputStream(tar(files)))
+                    .withRemotePath("/")
+                    .exec();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy TLS files to container", e);
         }
     }
 
+    private boolean isServerAgent() {
+        return consulCommand == null || consulCommand.isDev() || consulCommand.isServer();
+    }
+
+    private static byte[] readResource(String resource) throws IOException {
+        return Files.readAllBytes(Paths.get(MountableFile.forClasspathResource(resource).getResolvedPath()));
+    }
+
+    static byte[] tar(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(out)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                TarArchiveEntry entry = new TarArchiveEntry(file.getKey().substring(1));
+                entry.setSize(file.getValue().length);
+                entry.setMode(0644);
+                tar.putArchiveEntry(entry);
+                tar.write(file.getValue());
+                tar.closeArchiveEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String getContainerIpAddress() {
+        return super.getContainerIpAddress();
+    }
+
+    @Override
+    public Integer getMappedPort(int originalPort) {
+        return super.getMappedPort(originalPort);
+    }
+
+    @Override
     public Integer getHttpPort() {
         return this.consulConfiguration != null &&
                     this.consulConfiguration.getPorts() != null &&
@@ -133,6 +503,66 @@ public class ConsulContainer extends GenericContainer<ConsulContainer> {
                 DEFAULT_DNS_PORT;
     }
 
+    /**
+     * Saves raft snapshot of current state, which can be restored with {@link #restoreBaseline()}
+     * between tests instead of restarting container.
+     */
+    public void captureBaseline() {
+        this.baseline = snapshot();
+    }
+
+    public void restoreBaseline() {
+        if (this.baseline == null) {
+            throw new RuntimeException("No baseline captured");
+        }
+        restore(this.baseline);
+    }
+
+    /**
+     * @return current agent metrics, see {@link MetricsSampler} for sampling over time
+     */
+    public ConsulMetrics metrics() {
+        try {
+            return ConsulMetrics.parse(new ConsulHttpClient(this).get(ConsulMetrics.METRICS_PATH), Instant.now());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read metrics", e);
+        }
+    }
+
+    /**
+     * @return raft snapshot of KV, catalog, sessions and ACLs, as returned by {@value #SNAPSHOT_PATH}
+     */
+    public byte[] snapshot() {
+        try {
+            return new ConsulHttpClient(this).getBytes(SNAPSHOT_PATH);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save snapshot", e);
+        }
+    }
+
+    public void restore(byte[] snapshot) {
+        try {
+            new ConsulHttpClient(this).put(SNAPSHOT_PATH, snapshot);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore snapshot", e);
+        }
+    }
+
+    /**
+     * Token allowing management access to the agent, if ACLs are configured with a master token
+     */
+    @SuppressWarnings("deprecation") // legacy token is the only one known to agents before 1.4.0
+    String getAclToken() {
+        if (this.consulConfiguration == null) {
+            return null;
+        }
+        if (this.consulConfiguration.getAcl() != null && this.consulConfiguration.getAcl().getTokens() != null &&
+                this.consulConfiguration.getAcl().getTokens().getMaster() != null) {
+            return this.consulConfiguration.getAcl().getTokens().getMaster();
+        }
+        return this.consulConfiguration.getAclMasterToken();
+    }
+
     protected void setConsulCommand(ConsulCommand consulCommand) {
         this.consulCommand = consulCommand;
     }
@@ -1,19 +1,34 @@
 package org.jetax.testcontainers.consul;
 
+import com.google.gson.Gson;
 import org.testcontainers.containers.Network;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 public class ConsulContainerBuilder {
 
-    private static final String DEFAULT_CONSUL_VERSION = "1.4.0-rc1";
+    private static final String DEFAULT_CONSUL_VERSION = ConsulContainer.CONSUL_VERSION;
     private static final Integer DEFAULT_WAIT_TIMEOUT_SEC = 30;
     private static final Integer DEFAULT_CLUSTER_SIZE = 1;
 
+    private static final Gson GSON = new Gson();
+
     protected ConsulContainerOptions options;
     protected ConsulConfiguration config;
     protected ConsulCommand command;
     protected Integer clusterSize;
     protected String version;
     protected Integer waitTimeout;
+    protected List<StartupListener> startupListeners = new ArrayList<>();
+    protected List<KVSource> kvSeeds = new ArrayList<>();
+    protected ConsulStorage storage = ConsulStorage.container();
+    protected Integer logCaptureBytes;
+    protected ReadinessMode readinessMode = ReadinessMode.HTTP;
+    protected boolean seededImage;
+    protected String fixtureId;
+    protected Consumer<ConsulContainer> fixture;
 
     public ConsulContainerBuilder() {
         this.config = new ConsulConfiguration();
@@ -24,6 +39,27 @@ public class ConsulContainerBuilder {
         this.waitTimeout = DEFAULT_WAIT_TIMEOUT_SEC;
     }
 
+    /**
+     * Copy of other builder, later changes of either one do not affect the other
+     */
+    public ConsulContainerBuilder(ConsulContainerBuilder other) {
+        this.config = other.config.freeze().toConfiguration();
+        this.options = new ConsulContainerOptions();
+        this.options.putAll(other.options);
+        this.command = new ConsulCommand(other.command);
+        this.version = other.version;
+        this.clusterSize = other.clusterSize;
+        this.waitTimeout = other.waitTimeout;
+        this.startupListeners = new ArrayList<>(other.startupListeners);
+        this.kvSeeds = new ArrayList<>(other.kvSeeds);
+        this.storage = other.storage;
+        this.logCaptureBytes = other.logCaptureBytes;
+        this.readinessMode = other.readinessMode;
+        this.seededImage = other.seededImage;
+        this.fixtureId = other.fixtureId;
+        this.fixture = other.fixture;
+    }
+
     public ConsulContainerBuilder withOptions(ConsulContainerOptions consulContainerOptions) {
         this.options = consulContainerOptions;
         return this;
@@ -127,6 +163,34 @@ public class ConsulContainerBuilder {
         return this;
     }
 
+    /**
+     * Runs agents in server mode instead of dev mode, see {@link #cluster(int, int, Network)}
+     */
+    public ConsulContainerBuilder server() {
+        this.command.setDev(false);
+        this.command.setServer(true);
+        return this;
+    }
+
+    /**
+     * Runs agents as clients, which need servers to join
+     */
+    public ConsulContainerBuilder client() {
+        this.command.setDev(false);
+        this.command.setServer(false);
+        return this;
+    }
+
+    /**
+     * Storage of agent data dir, which is also set as {@code data_dir} in configuration.
+     * Dev agents keep data in memory and are not affected.
+     */
+    public ConsulContainerBuilder withStorage(ConsulStorage storage) {
+        this.storage = storage;
+        this.config.setDataDir(storage.isMounted() ? ConsulStorage.DATA_DIR : null);
+        return this;
+    }
+
     public ConsulContainerBuilder ui() {
         this.command.setUi(true);
         return this;
@@ -145,6 +209,67 @@ public class ConsulContainerBuilder {
         return this;
     }
 
+    /**
+     * Every container built keeps its most recent log lines up to given number of bytes,
+     * see {@link ConsulContainer#withLogCapture(int)}
+     */
+    public ConsulContainerBuilder withLogCapture(int maxBytes) {
+        this.logCaptureBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Containers built by {@link #build()} are committed to a local image once started and seeded.
+     * Later containers with the same configuration, command, version and KV seeds start from that image
+     * and restore its state instead of seeding again.
+     */
+    public ConsulContainerBuilder withSeededImage() {
+        return withSeededImage(null, null);
+    }
+
+    /**
+     * Same as {@link #withSeededImage()}, with fixture run after KV seeding, e.g. to create ACL policies and tokens.
+     * Fixture code is not hashed, so its id must change whenever fixture changes.
+     */
+    public ConsulContainerBuilder withSeededImage(String fixtureId, Consumer<ConsulContainer> fixture) {
+        this.seededImage = true;
+        this.fixtureId = fixtureId;
+        this.fixture = fixture;
+        return this;
+    }
+
+    /**
+     * Selects how readiness of every container built is detected, see {@link ReadinessMode}
+     */
+    public ConsulContainerBuilder withReadiness(ReadinessMode mode) {
+        this.readinessMode = mode;
+        return this;
+    }
+
+    /**
+     * Listener receiving startup phase timings of every container built
+     */
+    public ConsulContainerBuilder withStartupListener(StartupListener listener) {
+        this.startupListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * KV pairs written before container is reported as started, for cluster they are written once through the first node
+     */
+    public ConsulContainerBuilder withKVSeed(KVSource source) {
+        this.kvSeeds.add(source);
+        return this;
+    }
+
+    /**
+     * Enables TLS with CA and node certificates generated in memory, see {@link ConsulCertificates}
+     */
+    public ConsulContainerBuilder withGeneratedTLS() {
+        this.config.setTlsConfig(ConsulConfiguration.TLSConfig.generated());
+        return this;
+    }
+
     /**
      * Configuration for ports for Consul setups starting with 1.4.0
      */
@@ -153,22 +278,107 @@ public class ConsulContainerBuilder {
         return this;
     }
 
+    public ConsulContainerBuilder withPerformance(ConsulConfiguration.Performance performance) {
+        this.config.setPerformance(performance);
+        return this;
+    }
+
+    public ConsulContainerBuilder withLimits(ConsulConfiguration.Limits limits) {
+        this.config.setLimits(limits);
+        return this;
+    }
+
+    public ConsulContainerBuilder withTelemetry(ConsulConfiguration.Telemetry telemetry) {
+        this.config.setTelemetry(telemetry);
+        return this;
+    }
+
     public ConsulContainer build() {
-        return new ConsulContainer(this.config, this.options, this.command, this.version, this.waitTimeout);
+        ConsulContainer container = newContainer();
+        this.startupListeners.forEach(container::withStartupListener);
+        this.kvSeeds.forEach(container::withKVSeed);
+        if (this.seededImage) {
+            // seeds are hashed only when the image is looked up on start, by then this builder may change
+            container.withSeededImage(SeededImage.of(new ConsulContainerBuilder(this)::fingerprint, fixture));
+        }
+        return container;
+    }
+
+    private ConsulContainer newContainer() {
+        return newContainer(this.config.freeze());
+    }
+
+    private ConsulContainer newContainer(ConsulConfigurationSnapshot snapshot) {
+        ConsulContainer container = new ConsulContainer(snapshot, this.options, this.command, this.version,
+                this.waitTimeout);
+        this.storage.mount(container);
+        if (this.logCaptureBytes != null) {
+            container.withLogCapture(this.logCaptureBytes);
+        }
+        container.withReadiness(this.readinessMode);
+        return container;
+    }
+
+    /**
+     * Builds in-JVM stand-in for Consul, which needs no Docker, but supports only KV, catalog,
+     * health, session and status endpoints. Only datacenter, node name and HTTP port are taken from configuration.
+     */
+    public EmbeddedConsul buildEmbedded() {
+        return new EmbeddedConsul(this.config);
     }
 
     public ConsulCluster cluster(Integer size, Network network) {
         if (size == null || size < 1) {
             throw new RuntimeException(String.format("Invalid cluster size: %s", size));
         }
-        return new ConsulCluster(size, this::build, network);
+        // configuration is rendered once for all nodes, cluster passes listeners to them
+        ConsulConfigurationSnapshot snapshot = this.config.freeze();
+        ConsulCluster cluster = new ConsulCluster(size, () -> newContainer(snapshot), network);
+        this.startupListeners.forEach(cluster::withStartupListener);
+        this.kvSeeds.forEach(cluster::withKVSeed);
+        return cluster;
     }
 
     public ConsulCluster cluster(Integer size) {
         return cluster(size, null);
     }
 
+    /**
+     * Cluster of servers started with {@code -bootstrap-expect} and client agents, all started at once.
+     * Nodes find each other by network aliases, so a network is created for cluster if none is given.
+     */
+    public ConsulCluster cluster(int servers, int clients, Network network) {
+        if (servers < 1 || clients < 0) {
+            throw new RuntimeException(String.format("Invalid cluster size: %s servers, %s clients", servers, clients));
+        }
+        ConsulConfigurationSnapshot snapshot = this.config.freeze();
+        ConsulCluster cluster = new ConsulCluster(servers, clients, () -> newContainer(snapshot), network);
+        this.startupListeners.forEach(cluster::withStartupListener);
+        this.kvSeeds.forEach(cluster::withKVSeed);
+        return cluster;
+    }
+
     public ConsulConfiguration buildConfig() {
         return this.config;
     }
+
+    /**
+     * Identifies containers which would be started the same way by {@link #build()}, including
+     * content of KV seeds. Fixture code is identified by its id only.
+     */
+    String fingerprint() {
+        return ConsulConfigurationSnapshot.sha256(new StringBuilder()
+                .append(version).append('\n')
+                .append(waitTimeout).append('\n')
+                .append(storage).append('\n')
+                .append(command.toCommand()).append('\n')
+                .append(GSON.toJson(options)).append('\n')
+                .append(readinessMode).append('\n')
+                .append(logCaptureBytes).append('\n')
+                .append(seededImage).append('\n')
+                .append(fixtureId).append('\n')
+                .append(SeededImage.hashSeeds(kvSeeds)).append('\n')
+                .append(config.freeze().getHash())
+                .toString());
+    }
 }
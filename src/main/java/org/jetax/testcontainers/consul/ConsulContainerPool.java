@@ -0,0 +1,252 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of started containers, keyed by {@link ConsulContainerBuilder} fingerprint, so that identically
+ * configured containers are started once and then leased by tests.
+ * <p>
+ * Leased containers are scrubbed on {@link #release(ConsulContainer)}: KV, sessions and registered
+ * services are removed and KV seeds of the builder are written again. Containers which can't be scrubbed
+ * are stopped instead of being returned to pool.
+ */
+public class ConsulContainerPool implements AutoCloseable {
+
+    private static final int DEFAULT_WARM_SIZE = 1;
+    private static final int DEFAULT_MAX_IDLE = 4;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final String CONSUL_SERVICE = "consul";
+
+    private static final Gson GSON = new Gson();
+
+    private final int warmSize;
+    private final int maxIdle;
+    private final Duration idleTimeout;
+
+    private final Map<String, Deque<IdleContainer>> idle = new HashMap<>();
+    private final Map<String, ConsulContainerBuilder> builders = new ConcurrentHashMap<>();
+    private final Map<ConsulContainer, String> leased = new IdentityHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    public ConsulContainerPool() {
+        this(DEFAULT_WARM_SIZE, DEFAULT_MAX_IDLE, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param warmSize    number of started containers kept ready per configuration
+     * @param maxIdle     max number of idle containers per configuration, extra ones are stopped on release
+     * @param idleTimeout idle containers are stopped after this time
+     */
+    public ConsulContainerPool(int warmSize, int maxIdle, Duration idleTimeout) {
+        if (warmSize < 0 || maxIdle < warmSize) {
+            throw new RuntimeException(String.format("Invalid pool size: warm %s, max idle %s", warmSize, maxIdle));
+        }
+        this.warmSize = warmSize;
+        this.maxIdle = maxIdle;
+        this.idleTimeout = idleTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "consul-container-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        this.scheduler.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts containers for given configuration in background, until there are warm size of them idle
+     */
+    public void warmUp(ConsulContainerBuilder builder) {
+        String key = register(builder);
+        scheduler.execute(() -> refill(key));
+    }
+
+    /**
+     * Returns idle container for configuration of given builder or starts a new one
+     */
+    public ConsulContainer lease(ConsulContainerBuilder builder) {
+        String key = register(builder);
+        ConsulContainer container = pollIdle(key);
+        if (container == null) {
+            container = builders.get(key).build();
+            container.start();
+        }
+
+        synchronized (this) {
+            leased.put(container, key);
+        }
+        scheduler.execute(() -> refill(key));
+        return container;
+    }
+
+    /**
+     * Returns leased container to pool, after cleaning up its state
+     */
+    public void release(ConsulContainer container) {
+        String key;
+        synchronized (this) {
+            key = leased.remove(container);
+        }
+        if (key == null) {
+            throw new RuntimeException("Container was not leased from this pool");
+        }
+
+        try {
+            scrub(container);
+            builders.get(key).kvSeeds.forEach(container::seed);
+        } catch (IOException | RuntimeException e) {
+            container.stop();
+            return;
+        }
+
+        synchronized (this) {
+            Deque<IdleContainer> containers = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+            if (!closed && containers.size() < maxIdle) {
+                containers.addLast(new IdleContainer(container));
+                return;
+            }
+        }
+        container.stop();
+    }
+
+    @Override
+    public void close() {
+        List<ConsulContainer> toStop = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            idle.values().forEach(containers -> containers.forEach(c -> toStop.add(c.container)));
+            idle.clear();
+        }
+        scheduler.shutdownNow();
+        toStop.forEach(ConsulContainer::stop);
+    }
+
+    private synchronized String register(ConsulContainerBuilder builder) {
+        if (closed) {
+            throw new RuntimeException("Pool is closed");
+        }
+        String key = builder.fingerprint();
+        // builder may be changed or reused by caller, containers are created from a copy taken on first use
+        builders.computeIfAbsent(key, k -> new ConsulContainerBuilder(builder));
+        return key;
+    }
+
+    private synchronized ConsulContainer pollIdle(String key) {
+        Deque<IdleContainer> containers = idle.get(key);
+        IdleContainer container = containers != null ? containers.pollFirst() : null;
+        return container != null ? container.container : null;
+    }
+
+    private void refill(String key) {
+        while (true) {
+            synchronized (this) {
+                Deque<IdleContainer> containers = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+                if (closed || containers.size() >= warmSize) {
+                    return;
+                }
+            }
+
+            ConsulContainer container = builders.get(key).build();
+            try {
+                container.start();
+            } catch (RuntimeException e) {
+                // lease() will start containers on demand
+                container.stop();
+                return;
+            }
+
+            synchronized (this) {
+                if (!closed) {
+                    idle.get(key).addLast(new IdleContainer(container));
+                    continue;
+                }
+            }
+            container.stop();
+            return;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        List<ConsulContainer> toStop = new ArrayList<>();
+        synchronized (this) {
+            for (Deque<IdleContainer> containers : idle.values()) {
+                Iterator<IdleContainer> it = containers.iterator();
+                while (it.hasNext()) {
+                    IdleContainer container = it.next();
+                    if (now - container.idleSince > idleTimeout.toNanos()) {
+                        it.remove();
+                        toStop.add(container.container);
+                    }
+                }
+            }
+        }
+        toStop.forEach(ConsulContainer::stop);
+    }
+
+    private void scrub(ConsulContainer container) throws IOException {
+        ConsulHttpClient client = new ConsulHttpClient(container);
+
+        client.delete("/v1/kv/?recurse");
+
+        for (JsonElement session : GSON.fromJson(client.get("/v1/session/list"), JsonArray.class)) {
+            client.put("/v1/session/destroy/" + session.getAsJsonObject().get("ID").getAsString(), (byte[]) null);
+        }
+
+        JsonObject agentServices = GSON.fromJson(client.get("/v1/agent/services"), JsonObject.class);
+        for (Map.Entry<String, JsonElement> service : agentServices.entrySet()) {
+            if (!CONSUL_SERVICE.equals(service.getKey())) {
+                client.put("/v1/agent/service/deregister/" + encode(service.getKey()), (byte[]) null);
+            }
+        }
+
+        JsonObject catalogServices = GSON.fromJson(client.get("/v1/catalog/services"), JsonObject.class);
+        for (Map.Entry<String, JsonElement> service : catalogServices.entrySet()) {
+            if (CONSUL_SERVICE.equals(service.getKey())) {
+                continue;
+            }
+            String path = "/v1/catalog/service/" + encode(service.getKey());
+            for (JsonElement entry : GSON.fromJson(client.get(path), JsonArray.class)) {
+                JsonObject deregistration = new JsonObject();
+                deregistration.add("Node", entry.getAsJsonObject().get("Node"));
+                deregistration.add("ServiceID", entry.getAsJsonObject().get("ServiceID"));
+                client.put("/v1/catalog/deregister", GSON.toJson(deregistration));
+            }
+        }
+    }
+
+    private static String encode(String pathSegment) throws IOException {
+        return URLEncoder.encode(pathSegment, StandardCharsets.UTF_8.name()).replace("+", "%20");
+    }
+
+    private static class IdleContainer {
+        private final ConsulContainer container;
+        private final long idleSince;
+
+        IdleContainer(ConsulContainer container) {
+            this.container = container;
+            this.idleSince = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.jetax.testcontainers.consul;
+
+/**
+ * Accessors shared by {@link ConsulContainer} and {@link EmbeddedConsul}, so that tests can be written
+ * against either of them.
+ */
+public interface ConsulEndpoint {
+
+    void start();
+
+    void stop();
+
+    String getContainerIpAddress();
+
+    /**
+     * @return HTTP port as seen inside of Consul agent, use {@link #getMappedPort(int)} to get port reachable from tests
+     */
+    Integer getHttpPort();
+
+    Integer getMappedPort(int originalPort);
+}
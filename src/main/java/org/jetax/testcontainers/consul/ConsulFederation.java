@@ -0,0 +1,178 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import org.testcontainers.containers.Network;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Clusters of several datacenters joined over WAN. Clusters are started in parallel, then first node of every
+ * secondary datacenter joins the primary one, and start completes once every datacenter sees all others.
+ */
+public class ConsulFederation {
+
+    private static final String DATACENTERS_PATH = "/v1/catalog/datacenters";
+    private static final Gson GSON = new Gson();
+
+    private final Map<String, ConsulCluster> clusters;
+    private final Network network;
+    private final boolean ownNetwork;
+    private final Duration timeout;
+
+    ConsulFederation(Map<String, ConsulCluster> clusters, Network network, boolean ownNetwork, Duration timeout) {
+        this.clusters = clusters;
+        this.network = network;
+        this.ownNetwork = ownNetwork;
+        this.timeout = timeout;
+    }
+
+    public void start() {
+        try {
+            startAsync().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ?
+                    (RuntimeException) e.getCause() :
+                    new RuntimeException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<ConsulFederation> startAsync() {
+        List<CompletableFuture<ConsulCluster>> starts = new ArrayList<>();
+        for (ConsulCluster cluster : clusters.values()) {
+            starts.add(cluster.startAsync());
+        }
+        return CompletableFuture.allOf(starts.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(v -> {
+                    joinWan();
+                    awaitFederation();
+                    return this;
+                }, ConsulContainer.ASYNC_EXECUTOR)
+                .whenComplete((federation, e) -> {
+                    if (e != null) {
+                        stopQuietly(e);
+                    }
+                });
+    }
+
+    public void stop() {
+        List<CompletableFuture<Void>> stops = new ArrayList<>();
+        for (ConsulCluster cluster : clusters.values()) {
+            stops.add(CompletableFuture.runAsync(cluster::stop, ConsulContainer.ASYNC_EXECUTOR));
+        }
+
+        List<Throwable> failures = new ArrayList<>();
+        for (CompletableFuture<Void> stop : stops) {
+            try {
+                stop.join();
+            } catch (CompletionException e) {
+                failures.add(e.getCause());
+            }
+        }
+
+        RuntimeException failure = null;
+        if (!failures.isEmpty()) {
+            failure = new RuntimeException(String.format("Failed to stop %s of %s datacenters",
+                    failures.size(), clusters.size()), failures.get(0));
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+        }
+        if (ownNetwork) {
+            try {
+                network.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new RuntimeException("Failed to close federation network", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public ConsulCluster getCluster(String datacenter) {
+        return clusters.get(datacenter);
+    }
+
+    public Map<String, ConsulCluster> getClusters() {
+        return Collections.unmodifiableMap(clusters);
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    private void joinWan() {
+        ConsulCluster primary = clusters.values().iterator().next();
+        String primaryAddress = primary.getAddress(primary.getContainers().get(0));
+        for (ConsulCluster cluster : clusters.values()) {
+            if (cluster == primary) {
+                continue;
+            }
+            try {
+                new ConsulHttpClient(cluster.getContainers().get(0)).put("/v1/agent/join/" + primaryAddress + "?wan=1",
+                        (byte[]) null);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to join datacenters over WAN", e);
+            }
+        }
+    }
+
+    private void awaitFederation() {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Backoff backoff = new Backoff();
+        Set<String> expected = clusters.keySet();
+        while (true) {
+            String missing = missingDatacenters(expected);
+            if (missing == null) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new RuntimeException(String.format("Datacenters have not federated in %s: %s", timeout, missing));
+            }
+            try {
+                backoff.pause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for federation", e);
+            }
+        }
+    }
+
+    /**
+     * @return null if every datacenter sees all others, otherwise description of the first one which does not
+     */
+    private String missingDatacenters(Set<String> expected) {
+        for (Map.Entry<String, ConsulCluster> entry : clusters.entrySet()) {
+            try {
+                String body = new ConsulHttpClient(entry.getValue().getContainers().get(0)).get(DATACENTERS_PATH);
+                Set<String> seen = new HashSet<>(Arrays.asList(GSON.fromJson(body, String[].class)));
+                if (!seen.containsAll(expected)) {
+                    return String.format("%s sees %s", entry.getKey(), seen);
+                }
+            } catch (IOException e) {
+                return String.format("%s is not reachable: %s", entry.getKey(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void stopQuietly(Throwable cause) {
+        try {
+            stop();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+}
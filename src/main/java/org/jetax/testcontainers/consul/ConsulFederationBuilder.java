@@ -0,0 +1,66 @@
+package org.jetax.testcontainers.consul;
+
+import org.testcontainers.containers.Network;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds {@link ConsulFederation} of clusters, one per datacenter, on a shared network.
+ * The first datacenter is primary, unless builders set primary datacenter explicitly.
+ */
+public class ConsulFederationBuilder {
+
+    private static final Duration DEFAULT_FEDERATION_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Map<String, ConsulContainerBuilder> builders = new LinkedHashMap<>();
+    private final Map<String, Integer> sizes = new LinkedHashMap<>();
+    private Network network;
+    private Duration timeout = DEFAULT_FEDERATION_TIMEOUT;
+
+    public ConsulFederationBuilder withDatacenter(String datacenter, ConsulContainerBuilder builder, int size) {
+        if (size < 1) {
+            throw new RuntimeException(String.format("Invalid cluster size: %s", size));
+        }
+        this.builders.put(datacenter, builder);
+        this.sizes.put(datacenter, size);
+        return this;
+    }
+
+    /**
+     * Network shared by all datacenters, a new one is created and closed with federation by default
+     */
+    public ConsulFederationBuilder withNetwork(Network network) {
+        this.network = network;
+        return this;
+    }
+
+    /**
+     * Max time to wait for datacenters to see each other after clusters are started
+     */
+    public ConsulFederationBuilder withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public ConsulFederation build() {
+        if (builders.isEmpty()) {
+            throw new RuntimeException("No datacenters configured");
+        }
+        String primary = builders.keySet().iterator().next();
+        boolean ownNetwork = network == null;
+        Network sharedNetwork = ownNetwork ? Network.newNetwork() : network;
+
+        Map<String, ConsulCluster> clusters = new LinkedHashMap<>();
+        builders.forEach((datacenter, builder) -> {
+            // given builders stay as they were, they may be reused for other federations
+            ConsulContainerBuilder copy = new ConsulContainerBuilder(builder).withDatacenter(datacenter);
+            if (copy.buildConfig().getPrimaryDatacenter() == null) {
+                copy.buildConfig().setPrimaryDatacenter(primary);
+            }
+            clusters.put(datacenter, copy.cluster(sizes.get(datacenter), sharedNetwork));
+        });
+        return new ConsulFederation(clusters, sharedNetwork, ownNetwork, timeout);
+    }
+}
@@ -0,0 +1,130 @@
+package org.jetax.testcontainers.consul;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal HTTP client for Consul API calls made by the library itself,
+ * so that no client library is required at runtime.
+ */
+class ConsulHttpClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final String baseUrl;
+    private final String token;
+
+    ConsulHttpClient(String host, int port, String token) {
+        this.baseUrl = String.format("http://%s:%s", host, port);
+        this.token = token;
+    }
+
+    ConsulHttpClient(ConsulContainer container) {
+        this(container.getContainerIpAddress(), container.getMappedPort(container.getHttpPort()), container.getAclToken());
+    }
+
+    String get(String path) throws IOException {
+        return expectSuccess("GET", path, send("GET", path, null)).bodyAsString();
+    }
+
+    byte[] getBytes(String path) throws IOException {
+        return expectSuccess("GET", path, send("GET", path, null)).getBody();
+    }
+
+    String put(String path, byte[] body) throws IOException {
+        return expectSuccess("PUT", path, send("PUT", path, body)).bodyAsString();
+    }
+
+    String put(String path, String body) throws IOException {
+        return put(path, body != null ? body.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    String delete(String path) throws IOException {
+        return expectSuccess("DELETE", path, send("DELETE", path, null)).bodyAsString();
+    }
+
+    Response send(String method, String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (token != null) {
+                connection.setRequestProperty("X-Consul-Token", token);
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            return new Response(status, connection.getHeaderField("X-Consul-Index"), readAll(in));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Response expectSuccess(String method, String path, Response response) throws IOException {
+        if (response.getStatus() >= 300) {
+            throw new IOException(String.format("%s %s failed with %s: %s",
+                    method, path, response.getStatus(), response.bodyAsString()));
+        }
+        return response;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream is = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    static class Response {
+        private final int status;
+        private final String index;
+        private final byte[] body;
+
+        Response(int status, String index, byte[] body) {
+            this.status = status;
+            this.index = index;
+            this.body = body;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        /**
+         * Value of X-Consul-Index header, if any
+         */
+        String getIndex() {
+            return index;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
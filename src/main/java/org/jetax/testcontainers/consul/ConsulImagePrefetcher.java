@@ -0,0 +1,169 @@
+package org.jetax.testcontainers.consul;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.core.command.PullImageResultCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.DockerClientFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pulls Consul images in background, so that containers block only on versions they need.
+ * <p>
+ * Versions listed in {@value #VERSIONS_PROPERTY} system property (comma separated) are prefetched on
+ * {@link #prefetchConfigured()}, which is also called by the first container start, from registry set in
+ * {@value #REGISTRY_PROPERTY} if present. Images pulled from a registry mirror are tagged as default images,
+ * so containers use them as usual.
+ */
+public class ConsulImagePrefetcher {
+
+    public static final String VERSIONS_PROPERTY = "consul.prefetch.versions";
+    public static final String REGISTRY_PROPERTY = "consul.prefetch.registry";
+
+    static final String CONSUL_IMAGE = "consul";
+
+    private static final int PARALLEL_PULLS = 4;
+
+    private static final Logger log = LoggerFactory.getLogger(ConsulImagePrefetcher.class);
+
+    private final ConcurrentMap<String, CompletableFuture<Void>> pulls = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_PULLS, r -> {
+        Thread thread = new Thread(r, "consul-image-prefetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean configuredPrefetched = new AtomicBoolean();
+    private volatile String registry = System.getProperty(REGISTRY_PROPERTY);
+
+    private static class Holder {
+        private static final ConsulImagePrefetcher INSTANCE = new ConsulImagePrefetcher();
+    }
+
+    public static ConsulImagePrefetcher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    static String imageName(String version) {
+        return String.format("%s:%s", CONSUL_IMAGE, version);
+    }
+
+    /**
+     * Starts pulls of versions listed in {@value #VERSIONS_PROPERTY} system property, only on the first call
+     */
+    public void prefetchConfigured() {
+        if (!configuredPrefetched.compareAndSet(false, true)) {
+            return;
+        }
+        String versions = System.getProperty(VERSIONS_PROPERTY);
+        if (versions != null && !versions.trim().isEmpty()) {
+            prefetch(versions.trim().split("\\s*,\\s*"));
+        }
+    }
+
+    /**
+     * Registry mirror, e.g. {@code localhost:5000}, used for subsequent prefetches
+     */
+    public ConsulImagePrefetcher withRegistry(String registry) {
+        this.registry = registry;
+        return this;
+    }
+
+    public void prefetch(String... versions) {
+        for (String version : versions) {
+            prefetch(version);
+        }
+    }
+
+    /**
+     * Starts pull of given version, unless it is already prefetched
+     */
+    public CompletableFuture<Void> prefetch(String version) {
+        String registry = this.registry;
+        return pulls.computeIfAbsent(imageName(version),
+                image -> CompletableFuture.runAsync(() -> pull(version, registry), executor));
+    }
+
+    /**
+     * Loads image of given version from tarball created by {@code docker save}
+     */
+    public CompletableFuture<Void> load(String version, Path tarball) {
+        return pulls.computeIfAbsent(imageName(version),
+                image -> CompletableFuture.runAsync(() -> loadTarball(image, tarball), executor));
+    }
+
+    /**
+     * Waits for prefetch of image, if there is one. Failures are ignored, as image is resolved by container anyway.
+     */
+    void awaitPending(String image) {
+        CompletableFuture<Void> pull = pulls.get(image);
+        if (pull == null) {
+            return;
+        }
+        try {
+            pull.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Prefetch of {} failed, falling back to default resolution", image, e.getCause());
+        }
+    }
+
+    private void pull(String version, String registry) {
+        String image = imageName(version);
+        DockerClient client = DockerClientFactory.instance().client();
+        if (exists(client, image)) {
+            return;
+        }
+
+        String repository = registry != null ?
+                registry + "/" + CONSUL_IMAGE :
+                CONSUL_IMAGE;
+        long startedAt = System.nanoTime();
+        try {
+            client.pullImageCmd(repository).withTag(version).exec(new PullImageResultCallback()).awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(String.format("Interrupted while pulling %s:%s", repository, version), e);
+        }
+        if (registry != null) {
+            client.tagImageCmd(repository + ":" + version, CONSUL_IMAGE, version).exec();
+        }
+        log.info("Prefetched {}:{} in {} ms", repository, version, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void loadTarball(String image, Path tarball) {
+        DockerClient client = DockerClientFactory.instance().client();
+        if (exists(client, image)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(tarball)) {
+            client.loadImageCmd(in).exec();
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to load %s from %s", image, tarball), e);
+        }
+        if (!exists(client, image)) {
+            throw new RuntimeException(String.format("Tarball %s does not contain %s", tarball, image));
+        }
+    }
+
+    private static boolean exists(DockerClient client, String image) {
+        try {
+            client.inspectImageCmd(image).exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.jetax.testcontainers.consul;
+
+import org.testcontainers.containers.output.OutputFrame;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most recent agent log lines up to a limit of bytes, older lines are dropped. Lines are stored
+ * as received and parsed only when queried, see {@link ConsulLogLine}.
+ */
+public class ConsulLogCapture implements Consumer<OutputFrame> {
+
+    private final int maxBytes;
+    private final Deque<ConsulLogLine> lines = new ArrayDeque<>();
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    private long bytes;
+    private long dropped;
+
+    public ConsulLogCapture(int maxBytes) {
+        if (maxBytes < 1) {
+            throw new RuntimeException(String.format("Invalid log capture size: %s", maxBytes));
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized void accept(OutputFrame frame) {
+        byte[] content = frame.getBytes();
+        if (content == null) {
+            return;
+        }
+        // frames usually hold whole lines, but long lines may be split
+        int lineStart = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                partial.write(content, lineStart, i - lineStart);
+                add(partial.toByteArray());
+                partial.reset();
+                lineStart = i + 1;
+            }
+        }
+        partial.write(content, lineStart, content.length - lineStart);
+        if (frame.getType() == OutputFrame.OutputType.END || partial.size() > maxBytes) {
+            flushPartial();
+        }
+    }
+
+    /**
+     * @return captured lines, oldest first
+     */
+    public synchronized List<ConsulLogLine> getLines() {
+        return new ArrayList<>(lines);
+    }
+
+    public List<ConsulLogLine> query(Predicate<ConsulLogLine> filter) {
+        return getLines().stream().filter(filter).collect(Collectors.toList());
+    }
+
+    /**
+     * @return lines of given level or more severe, e.g. WARN returns warnings and errors
+     */
+    public List<ConsulLogLine> atLeast(String level) {
+        return query(line -> line.isAtLeast(level));
+    }
+
+    public List<ConsulLogLine> bySubsystem(String subsystem) {
+        return query(line -> subsystem.equals(line.getSubsystem()));
+    }
+
+    /**
+     * @return number of lines dropped to stay within the limit
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return captured lines as logged by agent
+     */
+    public String dump() {
+        List<ConsulLogLine> captured = getLines();
+        StringBuilder result = new StringBuilder();
+        long droppedLines = getDropped();
+        if (droppedLines > 0) {
+            result.append(String.format("... %s earlier lines dropped%n", droppedLines));
+        }
+        for (ConsulLogLine line : captured) {
+            result.append(line).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+        partial.reset();
+        bytes = 0;
+        dropped = 0;
+    }
+
+    private void flushPartial() {
+        if (partial.size() > 0) {
+            add(partial.toByteArray());
+            partial.reset();
+        }
+    }
+
+    private void add(byte[] raw) {
+        int length = raw.length;
+        if (length > 0 && raw[length - 1] == '\r') {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        byte[] line = length == raw.length ? raw : Arrays.copyOf(raw, length);
+        lines.addLast(new ConsulLogLine(line));
+        bytes += line.length;
+        while (bytes > maxBytes && lines.size() > 1) {
+            bytes -= lines.removeFirst().size();
+            dropped++;
+        }
+    }
+}
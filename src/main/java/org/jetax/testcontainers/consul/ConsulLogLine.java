@@ -0,0 +1,99 @@
+package org.jetax.testcontainers.consul;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Line of agent log, kept as bytes and parsed on first access to any field. Consul logs lines like
+ * <pre>2018/11/05 10:11:12 [INFO] raft: Node at 172.17.0.2:8300 [Leader] entering Leader state</pre>
+ * Lines not in this format, e.g. startup banner, have no level and subsystem, only message.
+ */
+public final class ConsulLogLine {
+
+    private static final Pattern FORMAT =
+            Pattern.compile("^\\s*(\\d{4}/\\d{2}/\\d{2} \\d{2}:\\d{2}:\\d{2}) \\[(\\w+)\\] (?:([\\w.-]+): )?(.*)$");
+    private static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERR"};
+
+    private final byte[] raw;
+    private volatile Parsed parsed;
+
+    ConsulLogLine(byte[] raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * @return TRACE, DEBUG, INFO, WARN, ERR or null if line has no level
+     */
+    public String getLevel() {
+        return parse().level;
+    }
+
+    /**
+     * @return component which logged the line, e.g. {@code raft}, {@code serf} or {@code agent}, or null
+     */
+    public String getSubsystem() {
+        return parse().subsystem;
+    }
+
+    public String getTimestamp() {
+        return parse().timestamp;
+    }
+
+    public String getMessage() {
+        return parse().message;
+    }
+
+    /**
+     * @return whether line level is the given one or more severe
+     */
+    public boolean isAtLeast(String level) {
+        int rank = rank(getLevel());
+        return rank >= 0 && rank >= rank(level);
+    }
+
+    int size() {
+        return raw.length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private Parsed parse() {
+        Parsed result = parsed;
+        if (result == null) {
+            String line = toString();
+            Matcher matcher = FORMAT.matcher(line);
+            result = matcher.matches() ?
+                    new Parsed(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4)) :
+                    new Parsed(null, null, null, line.trim());
+            parsed = result;
+        }
+        return result;
+    }
+
+    private static int rank(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equalsIgnoreCase(level)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Parsed {
+        private final String timestamp;
+        private final String level;
+        private final String subsystem;
+        private final String message;
+
+        Parsed(String timestamp, String level, String subsystem, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.subsystem = subsystem;
+            this.message = message;
+        }
+    }
+}
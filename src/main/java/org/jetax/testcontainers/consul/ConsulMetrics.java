@@ -0,0 +1,192 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of {@value #METRICS_PATH}. Metrics are keyed by name, labelled metrics by name followed by labels,
+ * e.g. {@code consul.catalog.service.query{service=consul}}.
+ * <p>
+ * Counters and samples are aggregated by Consul over its current interval (10 seconds by default),
+ * which is identified by {@link #getInterval()}.
+ */
+public final class ConsulMetrics {
+
+    static final String METRICS_PATH = "/v1/agent/metrics";
+    private static final Gson GSON = new Gson();
+
+    private final Instant capturedAt;
+    private final String interval;
+    private final Map<String, Double> gauges;
+    private final Map<String, Summary> counters;
+    private final Map<String, Summary> samples;
+
+    private ConsulMetrics(Instant capturedAt, String interval, Map<String, Double> gauges,
+                          Map<String, Summary> counters, Map<String, Summary> samples) {
+        this.capturedAt = capturedAt;
+        this.interval = interval;
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.counters = Collections.unmodifiableMap(counters);
+        this.samples = Collections.unmodifiableMap(samples);
+    }
+
+    static ConsulMetrics parse(String json, Instant capturedAt) {
+        MetricsResponse response = GSON.fromJson(json, MetricsResponse.class);
+        Map<String, Double> gauges = new TreeMap<>();
+        if (response.Gauges != null) {
+            for (GaugeValue gauge : response.Gauges) {
+                gauges.put(key(gauge.Name, gauge.Labels), gauge.Value);
+            }
+        }
+        return new ConsulMetrics(capturedAt, response.Timestamp, gauges,
+                summaries(response.Counters), summaries(response.Samples));
+    }
+
+    /**
+     * @return local time when snapshot was taken
+     */
+    public Instant getCapturedAt() {
+        return capturedAt;
+    }
+
+    /**
+     * @return start of Consul aggregation interval, as reported by agent
+     */
+    public String getInterval() {
+        return interval;
+    }
+
+    public Map<String, Double> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, Summary> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return timers and other sampled values, in milliseconds for timers
+     */
+    public Map<String, Summary> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return gauge value, mean of sample or count of counter with given key, whichever exists, or null
+     */
+    public Double value(String key) {
+        if (gauges.containsKey(key)) {
+            return gauges.get(key);
+        }
+        if (samples.containsKey(key)) {
+            return samples.get(key).getMean();
+        }
+        return counters.containsKey(key) ? counters.get(key).getCount() : null;
+    }
+
+    /**
+     * @return gauge value or max of sample or counter with given key, whichever exists, or null
+     */
+    public Double peak(String key) {
+        if (gauges.containsKey(key)) {
+            return gauges.get(key);
+        }
+        if (samples.containsKey(key)) {
+            return samples.get(key).getMax();
+        }
+        return counters.containsKey(key) ? counters.get(key).getMax() : null;
+    }
+
+    private static Map<String, Summary> summaries(List<SummaryValue> values) {
+        Map<String, Summary> result = new TreeMap<>();
+        if (values != null) {
+            for (SummaryValue value : values) {
+                result.put(key(value.Name, value.Labels),
+                        new Summary(value.Count, value.Sum, value.Min, value.Max, value.Mean, value.Stddev));
+            }
+        }
+        return result;
+    }
+
+    private static String key(String name, Map<String, String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return name;
+        }
+        StringBuilder key = new StringBuilder(name).append('{');
+        new TreeMap<>(labels).forEach((label, value) -> key.append(label).append('=').append(value).append(','));
+        key.setCharAt(key.length() - 1, '}');
+        return key.toString();
+    }
+
+    public static class Summary {
+        private final double count;
+        private final double sum;
+        private final double min;
+        private final double max;
+        private final double mean;
+        private final double stddev;
+
+        Summary(double count, double sum, double min, double max, double mean, double stddev) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.stddev = stddev;
+        }
+
+        public double getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStddev() {
+            return stddev;
+        }
+    }
+
+    // fields are named as in Consul response
+    private static class MetricsResponse {
+        String Timestamp;
+        List<GaugeValue> Gauges;
+        List<SummaryValue> Counters;
+        List<SummaryValue> Samples;
+    }
+
+    private static class GaugeValue {
+        String Name;
+        double Value;
+        Map<String, String> Labels;
+    }
+
+    private static class SummaryValue {
+        String Name;
+        double Count;
+        double Sum;
+        double Min;
+        double Max;
+        double Mean;
+        double Stddev;
+        Map<String, String> Labels;
+    }
+}
@@ -0,0 +1,75 @@
+package org.jetax.testcontainers.consul;
+
+import org.testcontainers.containers.BindMode;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Where agent keeps raft and serf data. Applies to non-dev agents only, dev agents keep everything in memory.
+ * <ul>
+ * <li>{@link #tmpfs(String)} - in memory of Docker host, fastest, lost when container is removed</li>
+ * <li>{@link #hostPath(String)} - on host disk, survives container, every node gets own subdirectory</li>
+ * <li>{@link #container()} - container filesystem, the default</li>
+ * </ul>
+ */
+public final class ConsulStorage {
+
+    /** Data dir of official image, which entrypoint passes to agent and prepares for consul user */
+    static final String DATA_DIR = "/consul/data";
+
+    private enum Mode { TMPFS, HOST_PATH, CONTAINER }
+
+    private final Mode mode;
+    private final String value;
+    private final AtomicInteger nodes = new AtomicInteger();
+
+    private ConsulStorage(Mode mode, String value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    /**
+     * @param size size limit as accepted by tmpfs mount, e.g. {@code 256m}
+     */
+    public static ConsulStorage tmpfs(String size) {
+        return new ConsulStorage(Mode.TMPFS, size);
+    }
+
+    /**
+     * Containers built by the same builder get subdirectories {@code node-0}, {@code node-1}... in order
+     * of creation, so cluster nodes find their data again on next run.
+     */
+    public static ConsulStorage hostPath(String path) {
+        return new ConsulStorage(Mode.HOST_PATH, Paths.get(path).toAbsolutePath().toString());
+    }
+
+    public static ConsulStorage container() {
+        return new ConsulStorage(Mode.CONTAINER, null);
+    }
+
+    boolean isMounted() {
+        return mode != Mode.CONTAINER;
+    }
+
+    void mount(ConsulContainer container) {
+        switch (mode) {
+            case TMPFS:
+                container.withCreateContainerCmdModifier(cmd -> cmd.getHostConfig()
+                        .withTmpFs(Collections.singletonMap(DATA_DIR, "rw,size=" + value)));
+                break;
+            case HOST_PATH:
+                String directory = Paths.get(value, "node-" + nodes.getAndIncrement()).toString();
+                container.withFileSystemBind(directory, DATA_DIR, BindMode.READ_WRITE);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return value != null ? mode + ":" + value : mode.toString();
+    }
+}
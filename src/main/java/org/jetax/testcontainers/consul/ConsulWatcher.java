@@ -0,0 +1,228 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Waits for changes with blocking queries instead of sleeping between reads.
+ * <p>
+ * Every watch issues one blocking query at a time, limited by wait time. A blocking query holds its thread until
+ * the agent responds, so watches share a bounded pool and the number of pending watches is capped by its size:
+ * no watch waits behind blocking queries of others, and a change is noticed as soon as the agent reports it.
+ * Watches over the cap are rejected, finished ones free their slot. Idle threads are released after a minute.
+ */
+public class ConsulWatcher implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_WATCHES = 16;
+    private static final long IDLE_THREAD_SECONDS = 60;
+    private static final Duration DEFAULT_WAIT = Duration.ofSeconds(2);
+    private static final Duration RETRY_DELAY = Duration.ofMillis(100);
+
+    private static final Gson GSON = new Gson();
+
+    private final ConsulHttpClient client;
+    private final Duration wait;
+    private final int maxWatches;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+    public ConsulWatcher(ConsulContainer container) {
+        this(container, DEFAULT_MAX_WATCHES, DEFAULT_WAIT);
+    }
+
+    /**
+     * @param maxWatches max number of pending watches, also number of threads doing blocking queries
+     */
+    public ConsulWatcher(ConsulContainer container, int maxWatches, Duration wait) {
+        if (maxWatches < 1) {
+            throw new RuntimeException(String.format("Invalid max watches: %s", maxWatches));
+        }
+        this.client = new ConsulHttpClient(container);
+        this.wait = wait;
+        this.maxWatches = maxWatches;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxWatches, maxWatches, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), ConsulWatcher::daemon);
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        ScheduledThreadPoolExecutor retries = new ScheduledThreadPoolExecutor(1, ConsulWatcher::daemon);
+        retries.setRemoveOnCancelPolicy(true);
+        this.scheduler = retries;
+    }
+
+    /**
+     * Completes with decoded values under prefix as soon as they match predicate
+     */
+    public CompletableFuture<Map<String, String>> kv(String prefix, Predicate<Map<String, String>> predicate) {
+        StringBuilder path = new StringBuilder("/v1/kv/");
+        String[] segments = prefix.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            path.append(i > 0 ? "/" : "").append(encode(segments[i]));
+        }
+        return watch(path.append("?recurse").toString(), ConsulWatcher::parseKV, predicate);
+    }
+
+    /**
+     * Completes with entries of {@code /v1/catalog/service/:service} as soon as they match predicate
+     */
+    public CompletableFuture<JsonArray> service(String service, Predicate<JsonArray> predicate) {
+        return watch("/v1/catalog/service/" + encode(service), ConsulWatcher::parseArray, predicate);
+    }
+
+    /**
+     * Completes with entries of {@code /v1/health/service/:service} as soon as they match predicate
+     */
+    public CompletableFuture<JsonArray> health(String service, boolean passingOnly, Predicate<JsonArray> predicate) {
+        return watch("/v1/health/service/" + encode(service) + (passingOnly ? "?passing" : ""),
+                ConsulWatcher::parseArray, predicate);
+    }
+
+    /**
+     * Generic watch of any endpoint supporting blocking queries, parser receives body of 200 response
+     * or null if there is nothing at path (404).
+     */
+    public <T> CompletableFuture<T> watch(String path, Function<String, T> parser, Predicate<T> predicate) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        synchronized (pending) {
+            if (pending.size() >= maxWatches) {
+                throw new RuntimeException(String.format("Too many pending watches, max is %s", maxWatches));
+            }
+            pending.add(future);
+        }
+        future.whenComplete((result, e) -> pending.remove(future));
+        schedule(new Watch<>(path, parser, predicate, future), 0);
+        return future;
+    }
+
+    /**
+     * Cancels all pending watches
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(false);
+        }
+    }
+
+    private void schedule(Watch<?> watch, long delayMillis) {
+        try {
+            if (delayMillis > 0) {
+                scheduler.schedule(() -> schedule(watch, 0), delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(watch);
+            }
+        } catch (RejectedExecutionException e) {
+            watch.future.cancel(false);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable) {
+        Thread thread = new Thread(runnable, "consul-watcher");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private class Watch<T> implements Runnable {
+        private final String path;
+        private final Function<String, T> parser;
+        private final Predicate<T> predicate;
+        private final CompletableFuture<T> future;
+        private long index;
+
+        Watch(String path, Function<String, T> parser, Predicate<T> predicate, CompletableFuture<T> future) {
+            this.path = path;
+            this.parser = parser;
+            this.predicate = predicate;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            ConsulHttpClient.Response response;
+            try {
+                String query = String.format("%sindex=%s&wait=%sms", path.contains("?") ? "&" : "?",
+                        index, wait.toMillis());
+                response = client.send("GET", path + query, null);
+            } catch (IOException e) {
+                // agent may be restarting, try again shortly
+                schedule(this, RETRY_DELAY.toMillis());
+                return;
+            }
+
+            try {
+                if (response.getStatus() != 200 && response.getStatus() != 404) {
+                    throw new IOException(String.format("Watch of %s failed with %s: %s",
+                            path, response.getStatus(), response.bodyAsString()));
+                }
+                long newIndex = response.getIndex() != null ? Long.parseLong(response.getIndex()) : 0;
+                // index going backwards means state was reset, e.g. by snapshot restore
+                index = newIndex < index ? 0 : newIndex;
+
+                T value = parser.apply(response.getStatus() == 200 ? response.bodyAsString() : null);
+                if (predicate.test(value)) {
+                    future.complete(value);
+                    return;
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            schedule(this, 0);
+        }
+    }
+
+    private static Map<String, String> parseKV(String body) {
+        if (body == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> values = new TreeMap<>();
+        for (JsonElement entry : GSON.fromJson(body, JsonArray.class)) {
+            JsonObject kv = entry.getAsJsonObject();
+            JsonElement value = kv.get("Value");
+            values.put(kv.get("Key").getAsString(), value != null && !value.isJsonNull() ?
+                    new String(Base64.getDecoder().decode(value.getAsString()), StandardCharsets.UTF_8) :
+                    "");
+        }
+        return values;
+    }
+
+    private static JsonArray parseArray(String body) {
+        return body != null ? GSON.fromJson(body, JsonArray.class) : new JsonArray();
+    }
+
+    private static String encode(String pathSegment) {
+        try {
+            return URLEncoder.encode(pathSegment, StandardCharsets.UTF_8.name()).replace("+", "%20");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
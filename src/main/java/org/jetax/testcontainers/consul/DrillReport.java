@@ -0,0 +1,68 @@
+package org.jetax.testcontainers.consul;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Times measured by {@link LeaderDrill}, one per iteration, in order of iterations
+ */
+public class DrillReport {
+
+    private final LeaderDrill.Mode mode;
+    private final List<Duration> electionTimes;
+    private final List<Duration> firstWriteTimes;
+
+    DrillReport(LeaderDrill.Mode mode, List<Duration> electionTimes, List<Duration> firstWriteTimes) {
+        this.mode = mode;
+        this.electionTimes = Collections.unmodifiableList(new ArrayList<>(electionTimes));
+        this.firstWriteTimes = Collections.unmodifiableList(new ArrayList<>(firstWriteTimes));
+    }
+
+    public LeaderDrill.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return times from leader going down till another server is reported as leader
+     */
+    public List<Duration> getElectionTimes() {
+        return electionTimes;
+    }
+
+    /**
+     * @return times from leader going down till the first successful write
+     */
+    public List<Duration> getFirstWriteTimes() {
+        return firstWriteTimes;
+    }
+
+    public Duration electionPercentile(double percentile) {
+        return percentile(electionTimes, percentile);
+    }
+
+    public Duration firstWritePercentile(double percentile) {
+        return percentile(firstWriteTimes, percentile);
+    }
+
+    /**
+     * Nearest rank percentile
+     */
+    private static Duration percentile(List<Duration> times, double percentile) {
+        if (times.isEmpty()) {
+            return null;
+        }
+        List<Duration> sorted = new ArrayList<>(times);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size(), rank) - 1));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s leader drill of %s iterations: election p50 %s max %s, first write p50 %s max %s",
+                mode, electionTimes.size(), electionPercentile(50), electionPercentile(100),
+                firstWritePercentile(50), firstWritePercentile(100));
+    }
+}
@@ -0,0 +1,819 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-JVM stand-in for a single Consul agent, for tests which only need KV, catalog, health, session and
+ * status HTTP endpoints and should not depend on Docker.
+ * <p>
+ * Blocking queries on {@code index}/{@code wait} parameters and {@code X-Consul-Index} are supported per endpoint
+ * group (KV, catalog, sessions). ACLs, session TTLs, health checks and DNS are not emulated.
+ */
+public class EmbeddedConsul implements ConsulEndpoint {
+
+    private static final String DEFAULT_DATACENTER = "dc1";
+    private static final String DEFAULT_NODE_NAME = "embedded";
+    private static final String ADDRESS = "127.0.0.1";
+    private static final String SERVER_ADDRESS = ADDRESS + ":8300";
+    private static final Integer DEFAULT_HTTP_PORT = 8500;
+    private static final String CONSUL_SERVICE = "consul";
+
+    private static final long DEFAULT_WAIT_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAX_WAIT_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final Pattern WAIT_PATTERN = Pattern.compile("(\\d+)(ms|s|m|h)?");
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Shared by all instances, blocking queries hold a thread while waiting
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "embedded-consul");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String datacenter;
+    private final String nodeName;
+    private final Integer httpPort;
+
+    private final Object lock = new Object();
+    private long index;
+    private long kvIndex;
+    private long catalogIndex;
+    private long sessionIndex;
+    private final TreeMap<String, KVEntry> kv = new TreeMap<>();
+    private final Map<String, CatalogNode> nodes = new TreeMap<>();
+    private final Map<String, Session> sessions = new LinkedHashMap<>();
+
+    private HttpServer server;
+
+    public EmbeddedConsul() {
+        this(null);
+    }
+
+    public EmbeddedConsul(ConsulConfiguration consulConfiguration) {
+        this.datacenter = consulConfiguration != null && consulConfiguration.getDatacenter() != null ?
+                consulConfiguration.getDatacenter() :
+                DEFAULT_DATACENTER;
+        this.nodeName = consulConfiguration != null && consulConfiguration.getNodeName() != null ?
+                consulConfiguration.getNodeName() :
+                DEFAULT_NODE_NAME;
+        this.httpPort = consulConfiguration != null && consulConfiguration.getPorts() != null &&
+                consulConfiguration.getPorts().getHttpPort() != null ?
+                consulConfiguration.getPorts().getHttpPort() :
+                DEFAULT_HTTP_PORT;
+    }
+
+    @Override
+    public void start() {
+        if (server != null) {
+            return;
+        }
+        synchronized (lock) {
+            CatalogNode node = registerNode(nodeName, ADDRESS);
+            node.services.put(CONSUL_SERVICE, new CatalogService(CONSUL_SERVICE, CONSUL_SERVICE,
+                    Collections.emptyList(), "", 8300, nextCatalogIndex()));
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(ADDRESS, 0), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start embedded Consul", e);
+        }
+        server.setExecutor(EXECUTOR);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        synchronized (lock) {
+            // wake up blocking queries
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public String getContainerIpAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public Integer getHttpPort() {
+        return httpPort;
+    }
+
+    @Override
+    public Integer getMappedPort(int originalPort) {
+        if (server == null) {
+            throw new IllegalStateException("Mapped port can only be obtained after embedded Consul is started");
+        }
+        if (originalPort != httpPort) {
+            throw new IllegalArgumentException(String.format("Port %s is not exposed by embedded Consul", originalPort));
+        }
+        return server.getAddress().getPort();
+    }
+
+    // region HTTP
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Reply reply;
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            byte[] body = readAll(exchange.getRequestBody());
+            reply = route(method, path, query, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply = Reply.text(500, "interrupted");
+        } catch (RuntimeException e) {
+            reply = Reply.text(400, String.valueOf(e.getMessage()));
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", reply.contentType);
+        exchange.getResponseHeaders().add("X-Consul-Index", String.valueOf(Math.max(1, reply.index)));
+        exchange.getResponseHeaders().add("X-Consul-Knownleader", "true");
+        exchange.getResponseHeaders().add("X-Consul-Lastcontact", "0");
+        exchange.sendResponseHeaders(reply.status, reply.body.length == 0 ? -1 : reply.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(reply.body);
+        }
+    }
+
+    private Reply route(String method, String path, Map<String, String> query, byte[] body)
+            throws InterruptedException, UnsupportedEncodingException {
+        if (path.startsWith("/v1/kv/")) {
+            String key = decode(path.substring("/v1/kv/".length()));
+            switch (method) {
+                case "GET":
+                    return kvGet(key, query);
+                case "PUT":
+                    return kvPut(key, query, body);
+                case "DELETE":
+                    return kvDelete(key, query);
+                default:
+                    return Reply.text(405, "method not allowed");
+            }
+        }
+
+        if (path.equals("/v1/catalog/register")) {
+            return catalogRegister(GSON.fromJson(utf8(body), JsonObject.class));
+        } else if (path.equals("/v1/catalog/deregister")) {
+            return catalogDeregister(GSON.fromJson(utf8(body), JsonObject.class));
+        } else if (path.equals("/v1/catalog/services")) {
+            return catalogServices(query);
+        } else if (path.startsWith("/v1/catalog/service/")) {
+            return catalogService(decode(path.substring("/v1/catalog/service/".length())), query);
+        } else if (path.equals("/v1/catalog/nodes")) {
+            return catalogNodes(query);
+        } else if (path.equals("/v1/catalog/datacenters")) {
+            return Reply.json(Collections.singletonList(datacenter), 0);
+        } else if (path.startsWith("/v1/health/service/")) {
+            return healthService(decode(path.substring("/v1/health/service/".length())), query);
+        } else if (path.equals("/v1/agent/services")) {
+            return agentServices();
+        } else if (path.equals("/v1/agent/service/register")) {
+            JsonObject registration = GSON.fromJson(utf8(body), JsonObject.class);
+            JsonObject catalogRegistration = new JsonObject();
+            catalogRegistration.addProperty("Node", nodeName);
+            catalogRegistration.addProperty("Address", ADDRESS);
+            catalogRegistration.add("Service", registration);
+            catalogRegister(catalogRegistration);
+            return Reply.text(200, "");
+        } else if (path.startsWith("/v1/agent/service/deregister/")) {
+            JsonObject deregistration = new JsonObject();
+            deregistration.addProperty("Node", nodeName);
+            deregistration.addProperty("ServiceID", decode(path.substring("/v1/agent/service/deregister/".length())));
+            catalogDeregister(deregistration);
+            return Reply.text(200, "");
+        } else if (path.equals("/v1/session/create")) {
+            return sessionCreate(body.length > 0 ? GSON.fromJson(utf8(body), JsonObject.class) : new JsonObject());
+        } else if (path.startsWith("/v1/session/destroy/")) {
+            return sessionDestroy(path.substring("/v1/session/destroy/".length()));
+        } else if (path.startsWith("/v1/session/info/")) {
+            return sessionInfo(path.substring("/v1/session/info/".length()), query);
+        } else if (path.startsWith("/v1/session/renew/")) {
+            return sessionInfo(path.substring("/v1/session/renew/".length()), Collections.emptyMap());
+        } else if (path.equals("/v1/session/list")) {
+            return sessionList(query);
+        } else if (path.equals("/v1/status/leader")) {
+            return Reply.json(SERVER_ADDRESS, 0);
+        } else if (path.equals("/v1/status/peers")) {
+            return Reply.json(Collections.singletonList(SERVER_ADDRESS), 0);
+        }
+
+        return Reply.text(404, String.format("%s %s is not supported by embedded Consul", method, path));
+    }
+
+    // endregion
+
+    // region KV
+
+    private Reply kvGet(String key, Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> kvIndex);
+
+            Map<String, KVEntry> matched = query.containsKey("recurse") || query.containsKey("keys") ?
+                    kv.subMap(key, true, key + Character.MAX_VALUE, false) :
+                    kv.containsKey(key) ? Collections.singletonMap(key, kv.get(key)) : Collections.emptyMap();
+            if (matched.isEmpty()) {
+                return Reply.status(404, kvIndex);
+            }
+
+            if (query.containsKey("keys")) {
+                String separator = query.get("separator");
+                Set<String> keys = new LinkedHashSet<>();
+                for (String k : matched.keySet()) {
+                    int at = separator != null && !separator.isEmpty() ? k.indexOf(separator, key.length()) : -1;
+                    keys.add(at >= 0 ? k.substring(0, at + separator.length()) : k);
+                }
+                return Reply.json(keys, kvIndex);
+            }
+            if (query.containsKey("raw")) {
+                byte[] value = matched.values().iterator().next().value;
+                return new Reply(200, value != null ? value : new byte[0], kvIndex, "application/octet-stream");
+            }
+
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (KVEntry entry : matched.values()) {
+                entries.add(entry.toJson());
+            }
+            return Reply.json(entries, kvIndex);
+        }
+    }
+
+    private Reply kvPut(String key, Map<String, String> query, byte[] body) {
+        synchronized (lock) {
+            KVEntry existing = kv.get(key);
+            if (query.containsKey("cas")) {
+                long cas = Long.parseLong(query.get("cas"));
+                if (cas == 0 ? existing != null : existing == null || existing.modifyIndex != cas) {
+                    return Reply.json(false, kvIndex);
+                }
+            }
+
+            String acquire = query.get("acquire");
+            String release = query.get("release");
+            String session = existing != null ? existing.session : null;
+            long lockIndex = existing != null ? existing.lockIndex : 0;
+            if (acquire != null) {
+                if (!sessions.containsKey(acquire) || (session != null && !session.equals(acquire))) {
+                    return Reply.json(false, kvIndex);
+                }
+                if (session == null) {
+                    lockIndex++;
+                }
+                session = acquire;
+            } else if (release != null) {
+                if (session == null || !session.equals(release)) {
+                    return Reply.json(false, kvIndex);
+                }
+                session = null;
+            }
+
+            long modifyIndex = nextKVIndex();
+            KVEntry entry = new KVEntry(key, body, query.containsKey("flags") ? Long.parseLong(query.get("flags")) :
+                    existing != null ? existing.flags : 0,
+                    existing != null ? existing.createIndex : modifyIndex, modifyIndex, lockIndex, session);
+            kv.put(key, entry);
+            return Reply.json(true, kvIndex);
+        }
+    }
+
+    private Reply kvDelete(String key, Map<String, String> query) {
+        synchronized (lock) {
+            if (query.containsKey("cas")) {
+                KVEntry existing = kv.get(key);
+                if (existing == null || existing.modifyIndex != Long.parseLong(query.get("cas"))) {
+                    return Reply.json(false, kvIndex);
+                }
+            }
+            if (query.containsKey("recurse")) {
+                kv.subMap(key, true, key + Character.MAX_VALUE, false).clear();
+            } else {
+                kv.remove(key);
+            }
+            nextKVIndex();
+            return Reply.json(true, kvIndex);
+        }
+    }
+
+    // endregion
+
+    // region catalog
+
+    private Reply catalogRegister(JsonObject registration) {
+        synchronized (lock) {
+            CatalogNode node = registerNode(string(registration, "Node"), string(registration, "Address"));
+            JsonObject service = registration.has("Service") && registration.get("Service").isJsonObject() ?
+                    registration.getAsJsonObject("Service") :
+                    null;
+            long modifyIndex = nextCatalogIndex();
+            if (service != null) {
+                String name = service.has("Service") ? string(service, "Service") : string(service, "Name");
+                String id = service.has("ID") ? string(service, "ID") : name;
+                List<String> tags = new ArrayList<>();
+                if (service.has("Tags") && service.get("Tags").isJsonArray()) {
+                    for (JsonElement tag : service.getAsJsonArray("Tags")) {
+                        tags.add(tag.getAsString());
+                    }
+                }
+                int port = service.has("Port") ? service.get("Port").getAsInt() : 0;
+                String address = service.has("Address") ? string(service, "Address") : "";
+                node.services.put(id, new CatalogService(id, name, tags, address, port, modifyIndex));
+            }
+            return Reply.json(true, catalogIndex);
+        }
+    }
+
+    private Reply catalogDeregister(JsonObject deregistration) {
+        synchronized (lock) {
+            String nodeName = string(deregistration, "Node");
+            if (deregistration.has("ServiceID")) {
+                CatalogNode node = nodes.get(nodeName);
+                if (node != null) {
+                    node.services.remove(string(deregistration, "ServiceID"));
+                }
+            } else {
+                nodes.remove(nodeName);
+            }
+            nextCatalogIndex();
+            return Reply.json(true, catalogIndex);
+        }
+    }
+
+    private Reply catalogServices(Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> catalogIndex);
+            Map<String, Set<String>> services = new TreeMap<>();
+            for (CatalogNode node : nodes.values()) {
+                for (CatalogService service : node.services.values()) {
+                    services.computeIfAbsent(service.name, k -> new LinkedHashSet<>()).addAll(service.tags);
+                }
+            }
+            return Reply.json(services, catalogIndex);
+        }
+    }
+
+    private Reply catalogService(String name, Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> catalogIndex);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (CatalogNode node : nodes.values()) {
+                for (CatalogService service : node.services.values()) {
+                    if (service.name.equals(name) && hasTag(service, query.get("tag"))) {
+                        Map<String, Object> entry = node.toJson();
+                        entry.putAll(service.toJson());
+                        entries.add(entry);
+                    }
+                }
+            }
+            return Reply.json(entries, catalogIndex);
+        }
+    }
+
+    private Reply catalogNodes(Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> catalogIndex);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (CatalogNode node : nodes.values()) {
+                entries.add(node.toJson());
+            }
+            return Reply.json(entries, catalogIndex);
+        }
+    }
+
+    /**
+     * All registered instances are reported as passing, as health checks are not emulated
+     */
+    private Reply healthService(String name, Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> catalogIndex);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (CatalogNode node : nodes.values()) {
+                for (CatalogService service : node.services.values()) {
+                    if (!service.name.equals(name) || !hasTag(service, query.get("tag"))) {
+                        continue;
+                    }
+                    Map<String, Object> serviceJson = new LinkedHashMap<>();
+                    serviceJson.put("ID", service.id);
+                    serviceJson.put("Service", service.name);
+                    serviceJson.put("Tags", service.tags);
+                    serviceJson.put("Address", service.address);
+                    serviceJson.put("Port", service.port);
+
+                    Map<String, Object> check = new LinkedHashMap<>();
+                    check.put("Node", node.name);
+                    check.put("CheckID", "serfHealth");
+                    check.put("Name", "Serf Health Status");
+                    check.put("Status", "passing");
+
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("Node", node.toJson());
+                    entry.put("Service", serviceJson);
+                    entry.put("Checks", Collections.singletonList(check));
+                    entries.add(entry);
+                }
+            }
+            return Reply.json(entries, catalogIndex);
+        }
+    }
+
+    private Reply agentServices() {
+        synchronized (lock) {
+            Map<String, Object> services = new TreeMap<>();
+            for (CatalogService service : nodes.get(nodeName).services.values()) {
+                if (CONSUL_SERVICE.equals(service.id)) {
+                    continue;
+                }
+                Map<String, Object> serviceJson = new LinkedHashMap<>();
+                serviceJson.put("ID", service.id);
+                serviceJson.put("Service", service.name);
+                serviceJson.put("Tags", service.tags);
+                serviceJson.put("Address", service.address);
+                serviceJson.put("Port", service.port);
+                services.put(service.id, serviceJson);
+            }
+            return Reply.json(services, catalogIndex);
+        }
+    }
+
+    private CatalogNode registerNode(String name, String address) {
+        if (name == null) {
+            throw new IllegalArgumentException("Node is required");
+        }
+        CatalogNode node = nodes.get(name);
+        if (node == null) {
+            node = new CatalogNode(name, address, index + 1);
+            nodes.put(name, node);
+        } else if (address != null) {
+            node.address = address;
+        }
+        return node;
+    }
+
+    private static boolean hasTag(CatalogService service, String tag) {
+        return tag == null || service.tags.contains(tag);
+    }
+
+    // endregion
+
+    // region sessions
+
+    private Reply sessionCreate(JsonObject request) {
+        synchronized (lock) {
+            Session session = new Session(UUID.randomUUID().toString(),
+                    request.has("Name") ? string(request, "Name") : "",
+                    request.has("Node") ? string(request, "Node") : nodeName,
+                    request.has("Behavior") ? string(request, "Behavior") : "release",
+                    request.has("TTL") ? string(request, "TTL") : "",
+                    nextSessionIndex());
+            sessions.put(session.id, session);
+            return Reply.json(Collections.singletonMap("ID", session.id), sessionIndex);
+        }
+    }
+
+    private Reply sessionDestroy(String id) {
+        synchronized (lock) {
+            Session session = sessions.remove(id);
+            if (session != null) {
+                nextSessionIndex();
+                releaseLocks(session);
+            }
+            return Reply.json(true, sessionIndex);
+        }
+    }
+
+    private Reply sessionInfo(String id, Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> sessionIndex);
+            Session session = sessions.get(id);
+            return Reply.json(session != null ? Collections.singletonList(session.toJson()) : Collections.emptyList(),
+                    sessionIndex);
+        }
+    }
+
+    private Reply sessionList(Map<String, String> query) throws InterruptedException {
+        synchronized (lock) {
+            awaitIndex(query, () -> sessionIndex);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (Session session : sessions.values()) {
+                entries.add(session.toJson());
+            }
+            return Reply.json(entries, sessionIndex);
+        }
+    }
+
+    private void releaseLocks(Session session) {
+        List<String> keys = new ArrayList<>();
+        for (KVEntry entry : kv.values()) {
+            if (session.id.equals(entry.session)) {
+                keys.add(entry.key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        long modifyIndex = nextKVIndex();
+        for (String key : keys) {
+            KVEntry entry = kv.get(key);
+            if ("delete".equals(session.behavior)) {
+                kv.remove(key);
+            } else {
+                kv.put(key, new KVEntry(key, entry.value, entry.flags, entry.createIndex, modifyIndex,
+                        entry.lockIndex, null));
+            }
+        }
+    }
+
+    // endregion
+
+    // region indexes
+
+    private interface IndexSupplier {
+        long get();
+    }
+
+    /**
+     * Blocks while index of endpoint group is not greater than requested one, must be called holding lock
+     */
+    private void awaitIndex(Map<String, String> query, IndexSupplier current) throws InterruptedException {
+        if (!query.containsKey("index")) {
+            return;
+        }
+        long requested = Long.parseLong(query.get("index"));
+        long deadline = System.currentTimeMillis() + parseWait(query.get("wait"));
+        long remaining;
+        while (current.get() <= requested && server != null &&
+                (remaining = deadline - System.currentTimeMillis()) > 0) {
+            lock.wait(remaining);
+        }
+    }
+
+    private long nextKVIndex() {
+        kvIndex = ++index;
+        lock.notifyAll();
+        return kvIndex;
+    }
+
+    private long nextCatalogIndex() {
+        catalogIndex = ++index;
+        lock.notifyAll();
+        return catalogIndex;
+    }
+
+    private long nextSessionIndex() {
+        sessionIndex = ++index;
+        lock.notifyAll();
+        return sessionIndex;
+    }
+
+    private static long parseWait(String wait) {
+        if (wait == null) {
+            return DEFAULT_WAIT_MS;
+        }
+        Matcher matcher = WAIT_PATTERN.matcher(wait);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("Invalid wait time: %s", wait));
+        }
+        long value = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2) != null ? matcher.group(2) : "s";
+        long millis;
+        switch (unit) {
+            case "ms":
+                millis = value;
+                break;
+            case "m":
+                millis = TimeUnit.MINUTES.toMillis(value);
+                break;
+            case "h":
+                millis = TimeUnit.HOURS.toMillis(value);
+                break;
+            default:
+                millis = TimeUnit.SECONDS.toMillis(value);
+        }
+        return Math.min(millis, MAX_WAIT_MS);
+    }
+
+    // endregion
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) {
+                query.put(decode(param), "");
+            } else {
+                query.put(decode(param.substring(0, eq)), decode(param.substring(eq + 1)));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+    }
+
+    private static String utf8(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static String string(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static class Reply {
+        private final int status;
+        private final byte[] body;
+        private final long index;
+        private final String contentType;
+
+        Reply(int status, byte[] body, long index, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.index = index;
+            this.contentType = contentType;
+        }
+
+        static Reply json(Object value, long index) {
+            return new Reply(200, GSON.toJson(value).getBytes(StandardCharsets.UTF_8), index, "application/json");
+        }
+
+        static Reply text(int status, String text) {
+            return new Reply(status, text.getBytes(StandardCharsets.UTF_8), 0, "text/plain");
+        }
+
+        static Reply status(int status, long index) {
+            return new Reply(status, new byte[0], index, "text/plain");
+        }
+    }
+
+    private static class KVEntry {
+        private final String key;
+        private final byte[] value;
+        private final long flags;
+        private final long createIndex;
+        private final long modifyIndex;
+        private final long lockIndex;
+        private final String session;
+
+        KVEntry(String key, byte[] value, long flags, long createIndex, long modifyIndex, long lockIndex,
+                String session) {
+            this.key = key;
+            this.value = value;
+            this.flags = flags;
+            this.createIndex = createIndex;
+            this.modifyIndex = modifyIndex;
+            this.lockIndex = lockIndex;
+            this.session = session;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("LockIndex", lockIndex);
+            json.put("Key", key);
+            json.put("Flags", flags);
+            json.put("Value", value != null && value.length > 0 ? Base64.getEncoder().encodeToString(value) : null);
+            if (session != null) {
+                json.put("Session", session);
+            }
+            json.put("CreateIndex", createIndex);
+            json.put("ModifyIndex", modifyIndex);
+            return json;
+        }
+    }
+
+    private class CatalogNode {
+        private final String name;
+        private String address;
+        private final long createIndex;
+        private final Map<String, CatalogService> services = new LinkedHashMap<>();
+
+        CatalogNode(String name, String address, long createIndex) {
+            this.name = name;
+            this.address = address;
+            this.createIndex = createIndex;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("ID", "");
+            json.put("Node", name);
+            json.put("Address", address);
+            json.put("Datacenter", datacenter);
+            json.put("CreateIndex", createIndex);
+            json.put("ModifyIndex", createIndex);
+            return json;
+        }
+    }
+
+    private static class CatalogService {
+        private final String id;
+        private final String name;
+        private final List<String> tags;
+        private final String address;
+        private final int port;
+        private final long modifyIndex;
+
+        CatalogService(String id, String name, List<String> tags, String address, int port, long modifyIndex) {
+            this.id = id;
+            this.name = name;
+            this.tags = tags;
+            this.address = address;
+            this.port = port;
+            this.modifyIndex = modifyIndex;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("ServiceID", id);
+            json.put("ServiceName", name);
+            json.put("ServiceTags", tags);
+            json.put("ServiceAddress", address);
+            json.put("ServicePort", port);
+            json.put("CreateIndex", modifyIndex);
+            json.put("ModifyIndex", modifyIndex);
+            return json;
+        }
+    }
+
+    private static class Session {
+        private final String id;
+        private final String name;
+        private final String node;
+        private final String behavior;
+        private final String ttl;
+        private final long createIndex;
+
+        Session(String id, String name, String node, String behavior, String ttl, long createIndex) {
+            this.id = id;
+            this.name = name;
+            this.node = node;
+            this.behavior = behavior;
+            this.ttl = ttl;
+            this.createIndex = createIndex;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("ID", id);
+            json.put("Name", name);
+            json.put("Node", node);
+            json.put("Checks", Collections.singletonList("serfHealth"));
+            json.put("LockDelay", 15000000000L);
+            json.put("Behavior", behavior);
+            json.put("TTL", ttl);
+            json.put("CreateIndex", createIndex);
+            json.put("ModifyIndex", createIndex);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * Streams JSON file, see {@link KVSource#fromJson(Path)}
+ */
+class JsonKVSource implements KVSource {
+
+    private final Path file;
+
+    JsonKVSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void forEach(KVConsumer consumer) throws IOException {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readExport(reader, consumer);
+            } else {
+                readTree(reader, "", consumer);
+            }
+        }
+    }
+
+    private static void readExport(JsonReader reader, KVConsumer consumer) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String key = null;
+            String value = null;
+            long flags = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("key".equals(name)) {
+                    key = reader.nextString();
+                } else if ("value".equals(name) && reader.peek() != JsonToken.NULL) {
+                    value = reader.nextString();
+                } else if ("flags".equals(name)) {
+                    flags = reader.nextLong();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (key == null) {
+                throw new IOException("Entry without key at " + reader.getPath());
+            }
+            consumer.accept(key, value != null ? Base64.getDecoder().decode(value) : new byte[0], flags);
+        }
+        reader.endArray();
+    }
+
+    private static void readTree(JsonReader reader, String prefix, KVConsumer consumer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    readTree(reader, prefix.isEmpty() ? name : prefix + "/" + name, consumer);
+                }
+                reader.endObject();
+                break;
+            case NULL:
+                reader.nextNull();
+                consumer.accept(prefix, new byte[0], 0);
+                break;
+            case BOOLEAN:
+                consumer.accept(prefix, String.valueOf(reader.nextBoolean()).getBytes(StandardCharsets.UTF_8), 0);
+                break;
+            case BEGIN_ARRAY:
+                throw new IOException("Arrays are not supported as KV values at " + reader.getPath());
+            default:
+                // strings, and numbers as they are written
+                consumer.accept(prefix, reader.nextString().getBytes(StandardCharsets.UTF_8), 0);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.jetax.testcontainers.consul;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop KV load against a container or all nodes of a cluster, requests are spread over nodes round robin.
+ * <p>
+ * Request {@code i} is scheduled at {@code start + i / rate}, whether previous requests completed or not,
+ * and its latency is measured from that intended time. Requests delayed because all workers were busy are
+ * therefore counted with their queueing time, instead of being silently sent later (coordinated omission).
+ * Key space is written once before measurement, so that reads do not hit missing keys.
+ */
+public class KVLoadGenerator {
+
+    public enum Consistency {
+        DEFAULT(""), STALE("stale"), CONSISTENT("consistent");
+
+        private final String parameter;
+
+        Consistency(String parameter) {
+            this.parameter = parameter;
+        }
+    }
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final List<ConsulContainer> targets;
+    private int concurrency = 8;
+    private double readRatio = 0.9;
+    private int keys = 1000;
+    private int valueSize = 128;
+    private Consistency consistency = Consistency.DEFAULT;
+    private int rate = 1000;
+    private String keyPrefix = "load/";
+
+    public KVLoadGenerator(ConsulContainer container) {
+        this(Collections.singletonList(container));
+    }
+
+    public KVLoadGenerator(ConsulCluster cluster) {
+        this(cluster.getContainers());
+    }
+
+    public KVLoadGenerator(List<ConsulContainer> targets) {
+        if (targets.isEmpty()) {
+            throw new RuntimeException("No targets for load");
+        }
+        this.targets = new ArrayList<>(targets);
+    }
+
+    /**
+     * Max number of requests in flight, it should be high enough to sustain the rate
+     */
+    public KVLoadGenerator withConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new RuntimeException(String.format("Invalid concurrency: %s", concurrency));
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Share of reads among requests, from 0 (writes only) to 1 (reads only)
+     */
+    public KVLoadGenerator withReadRatio(double readRatio) {
+        if (readRatio < 0 || readRatio > 1) {
+            throw new RuntimeException(String.format("Invalid read ratio: %s", readRatio));
+        }
+        this.readRatio = readRatio;
+        return this;
+    }
+
+    /**
+     * Number of distinct keys, picked uniformly at random
+     */
+    public KVLoadGenerator withKeys(int keys) {
+        if (keys < 1) {
+            throw new RuntimeException(String.format("Invalid number of keys: %s", keys));
+        }
+        this.keys = keys;
+        return this;
+    }
+
+    public KVLoadGenerator withValueSize(int valueSize) {
+        this.valueSize = valueSize;
+        return this;
+    }
+
+    /**
+     * Consistency mode of reads
+     */
+    public KVLoadGenerator withConsistency(Consistency consistency) {
+        this.consistency = consistency;
+        return this;
+    }
+
+    /**
+     * Target number of requests per second
+     */
+    public KVLoadGenerator withRate(int rate) {
+        if (rate < 1) {
+            throw new RuntimeException(String.format("Invalid rate: %s", rate));
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    public KVLoadGenerator withKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+        return this;
+    }
+
+    /**
+     * Writes key space and then runs load for given time
+     */
+    public KVLoadReport run(Duration duration) {
+        byte[] value = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        new KVSeeder().seed(targets.get(0), consumer -> {
+            for (int i = 0; i < keys; i++) {
+                consumer.accept(key(i), value, 0);
+            }
+        });
+
+        List<ConsulHttpClient> clients = new ArrayList<>();
+        for (ConsulContainer target : targets) {
+            clients.add(new ConsulHttpClient(target));
+        }
+        Histogram reads = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        Histogram writes = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        AtomicLong errors = new AtomicLong();
+        AtomicLong sequence = new AtomicLong();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = duration.toNanos() / intervalNanos;
+        long startedAt = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "consul-kv-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    long request;
+                    while ((request = sequence.getAndIncrement()) < total && !Thread.currentThread().isInterrupted()) {
+                        long intendedAt = startedAt + request * intervalNanos;
+                        long wait;
+                        while ((wait = intendedAt - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        boolean read = ThreadLocalRandom.current().nextDouble() < readRatio;
+                        ConsulHttpClient client = clients.get((int) (request % clients.size()));
+                        String key = key(ThreadLocalRandom.current().nextInt(keys));
+                        try {
+                            ConsulHttpClient.Response response = read ?
+                                    client.send("GET", readPath(key), null) :
+                                    client.send("PUT", "/v1/kv/" + key, value);
+                            if (response.getStatus() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedAt);
+                        (read ? reads : writes).recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating load", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Load generation failed", e);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return new KVLoadReport(Duration.ofNanos(System.nanoTime() - startedAt), rate, reads, writes, errors.get());
+    }
+
+    private String key(int index) {
+        return keyPrefix + index;
+    }
+
+    private String readPath(String key) {
+        return "/v1/kv/" + key + (consistency == Consistency.DEFAULT ? "" : "?" + consistency.parameter);
+    }
+}
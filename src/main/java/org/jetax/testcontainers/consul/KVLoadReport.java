@@ -0,0 +1,80 @@
+package org.jetax.testcontainers.consul;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of {@link KVLoadGenerator#run(Duration)}, latencies are recorded in microseconds
+ * from intended start of each request.
+ */
+public class KVLoadReport {
+
+    private final Duration elapsed;
+    private final int targetRate;
+    private final Histogram reads;
+    private final Histogram writes;
+    private final long errors;
+
+    KVLoadReport(Duration elapsed, int targetRate, Histogram reads, Histogram writes, long errors) {
+        this.elapsed = elapsed;
+        this.targetRate = targetRate;
+        this.reads = reads.copy();
+        this.writes = writes.copy();
+        this.errors = errors;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return successful requests per second
+     */
+    public double getThroughput() {
+        return (reads.getTotalCount() + writes.getTotalCount()) / (elapsed.toNanos() / 1e9);
+    }
+
+    public long getReads() {
+        return reads.getTotalCount();
+    }
+
+    public long getWrites() {
+        return writes.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public Histogram getReadLatency() {
+        return reads.copy();
+    }
+
+    public Histogram getWriteLatency() {
+        return writes.copy();
+    }
+
+    public Duration readPercentile(double percentile) {
+        return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(reads.getValueAtPercentile(percentile)));
+    }
+
+    public Duration writePercentile(double percentile) {
+        return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(writes.getValueAtPercentile(percentile)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f req/s of %s target in %s, %s errors; reads %s p50 %sus p99 %sus max %sus; " +
+                        "writes %s p50 %sus p99 %sus max %sus",
+                getThroughput(), targetRate, elapsed, errors,
+                reads.getTotalCount(), reads.getValueAtPercentile(50), reads.getValueAtPercentile(99), reads.getMaxValue(),
+                writes.getTotalCount(), writes.getValueAtPercentile(50), writes.getValueAtPercentile(99),
+                writes.getMaxValue());
+    }
+}
@@ -0,0 +1,181 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes KV pairs through {@value #TXN_PATH} in batches of up to {@value #MAX_TXN_OPERATIONS} operations,
+ * sending batches over several connections at once. Only a few batches per connection are buffered,
+ * so memory use does not depend on size of {@link KVSource}.
+ */
+public class KVSeeder {
+
+    private static final String TXN_PATH = "/v1/txn";
+    /** Consul limits transaction to 64 operations */
+    private static final int MAX_TXN_OPERATIONS = 64;
+    /** Consul limits request body to 512 KB, some room is left for JSON */
+    private static final int MAX_TXN_BYTES = 384 * 1024;
+    private static final int DEFAULT_CONNECTIONS = 4;
+    private static final int BATCHES_PER_CONNECTION = 2;
+
+    private static final Gson GSON = new Gson();
+    private static final JsonArray END = new JsonArray();
+
+    private final int connections;
+
+    public KVSeeder() {
+        this(DEFAULT_CONNECTIONS);
+    }
+
+    public KVSeeder(int connections) {
+        if (connections < 1) {
+            throw new RuntimeException(String.format("Invalid number of connections: %s", connections));
+        }
+        this.connections = connections;
+    }
+
+    /**
+     * @return number of written pairs
+     */
+    public long seed(ConsulContainer container, KVSource source) {
+        ConsulHttpClient client = new ConsulHttpClient(container);
+        BlockingQueue<JsonArray> batches = new ArrayBlockingQueue<>(connections * BATCHES_PER_CONNECTION);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicLong written = new AtomicLong();
+
+        ExecutorService senders = Executors.newFixedThreadPool(connections, r -> {
+            Thread thread = new Thread(r, "consul-kv-seeder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                futures.add(senders.submit(() -> send(client, batches, failure, written)));
+            }
+
+            try {
+                produce(source, batches, failure);
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                for (int i = 0; i < connections; i++) {
+                    putUninterruptibly(batches, END);
+                }
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException(String.format("KV seeding failed after %s pairs", written.get()), failure.get());
+        }
+        return written.get();
+    }
+
+    private void produce(KVSource source, BlockingQueue<JsonArray> batches, AtomicReference<Exception> failure)
+            throws IOException {
+        JsonArray[] batch = {new JsonArray()};
+        long[] batchBytes = {0};
+        source.forEach((key, value, flags) -> {
+            if (failure.get() != null) {
+                throw new IOException("Seeding aborted", failure.get());
+            }
+            // base64 takes 4/3 of value
+            long size = key.getBytes(StandardCharsets.UTF_8).length + (value.length * 4L + 2) / 3;
+            if (batch[0].size() == MAX_TXN_OPERATIONS ||
+                    (batch[0].size() > 0 && batchBytes[0] + size > MAX_TXN_BYTES)) {
+                putUninterruptibly(batches, batch[0]);
+                batch[0] = new JsonArray();
+                batchBytes[0] = 0;
+            }
+            batch[0].add(setOperation(key, value, flags));
+            batchBytes[0] += size;
+        });
+        if (batch[0].size() > 0) {
+            putUninterruptibly(batches, batch[0]);
+        }
+    }
+
+    private void send(ConsulHttpClient client, BlockingQueue<JsonArray> batches, AtomicReference<Exception> failure,
+                      AtomicLong written) {
+        while (true) {
+            JsonArray batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+                return;
+            }
+            if (batch == END) {
+                return;
+            }
+            if (failure.get() != null) {
+                // drain queue, so that producer is not blocked
+                continue;
+            }
+            try {
+                ConsulHttpClient.Response response = client.send("PUT", TXN_PATH,
+                        GSON.toJson(batch).getBytes(StandardCharsets.UTF_8));
+                if (response.getStatus() != 200) {
+                    throw new IOException(String.format("Transaction failed with %s: %s",
+                            response.getStatus(), response.bodyAsString()));
+                }
+                written.addAndGet(batch.size());
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static JsonObject setOperation(String key, byte[] value, long flags) {
+        JsonObject kv = new JsonObject();
+        kv.addProperty("Verb", "set");
+        kv.addProperty("Key", key);
+        kv.addProperty("Value", Base64.getEncoder().encodeToString(value));
+        if (flags != 0) {
+            kv.addProperty("Flags", flags);
+        }
+        JsonObject operation = new JsonObject();
+        operation.add("KV", kv);
+        return operation;
+    }
+
+    private static void putUninterruptibly(BlockingQueue<JsonArray> queue, JsonArray batch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(batch);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.jetax.testcontainers.consul;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Source of KV pairs for {@link KVSeeder}. File based sources are streamed, so their size is not limited by heap.
+ */
+@FunctionalInterface
+public interface KVSource {
+
+    /**
+     * Passes every pair to consumer, in order
+     */
+    void forEach(KVConsumer consumer) throws IOException;
+
+    @FunctionalInterface
+    interface KVConsumer {
+        void accept(String key, byte[] value, long flags) throws IOException;
+    }
+
+    static KVSource of(Map<String, String> values) {
+        return consumer -> {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                consumer.accept(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8), 0);
+            }
+        };
+    }
+
+    /**
+     * Reads either object, where nested objects are joined to keys with "/", values are stored as text
+     * and nulls as empty values:
+     * <pre>{"app": {"db": {"url": "jdbc:..."}}}</pre>
+     * or array as produced by {@code consul kv export}:
+     * <pre>[{"key": "app/db/url", "flags": 0, "value": "amRiYzou..."}]</pre>
+     */
+    static KVSource fromJson(Path file) {
+        return new JsonKVSource(file);
+    }
+
+    /**
+     * Reads {@code key=value} or {@code key: value} lines, lines starting with # or ! are skipped.
+     * Unlike {@link java.util.Properties}, line continuations and escapes are not supported.
+     */
+    static KVSource fromProperties(Path file) {
+        return new PropertiesKVSource(file);
+    }
+}
@@ -0,0 +1,141 @@
+package org.jetax.testcontainers.consul;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeatedly takes down the raft leader and measures how long the cluster takes to elect a new one and to accept
+ * the first write afterwards. Both times are measured from the moment leader was taken down, by polling a surviving
+ * server every {@value #POLL_INTERVAL_MS} ms, which is the resolution of results.
+ * <p>
+ * After every iteration the old leader is brought back and the drill waits for full quorum before the next one.
+ * Killed nodes must find their data and peers again after restart, so drills are meant for clusters of servers
+ * built by {@link ConsulContainerBuilder#cluster(int, int, org.testcontainers.containers.Network)}.
+ */
+public class LeaderDrill {
+
+    public enum Mode {
+        /** leader process is killed and container is started again afterwards */
+        KILL,
+        /** leader container is frozen, like a long GC pause or hung VM, and resumed afterwards */
+        PAUSE
+    }
+
+    private static final long POLL_INTERVAL_MS = 10;
+    private static final String LEADER_PATH = "/v1/status/leader";
+    private static final String DRILL_KEY_PATH = "/v1/kv/consul-drill/";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+    private static final Gson GSON = new Gson();
+
+    private final ConsulCluster cluster;
+    private Mode mode = Mode.KILL;
+    private Duration timeout = DEFAULT_TIMEOUT;
+
+    public LeaderDrill(ConsulCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    public LeaderDrill withMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Max time of every step: election, first write and recovery of the old leader
+     */
+    public LeaderDrill withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public DrillReport run(int iterations) {
+        List<Duration> elections = new ArrayList<>();
+        List<Duration> writes = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            ConsulContainer leader = cluster.getLeader();
+            if (leader == null) {
+                throw new RuntimeException("Cluster has no leader");
+            }
+            List<ConsulContainer> survivors = cluster.getPeers();
+            survivors.remove(leader);
+            if (survivors.isEmpty()) {
+                throw new RuntimeException("Leader drill needs at least two servers");
+            }
+            ConsulHttpClient client = new ConsulHttpClient(survivors.get(0));
+            String oldLeader = cluster.getAddress(leader);
+
+            long downAt = System.nanoTime();
+            takeDown(leader);
+            try {
+                elections.add(awaitElection(client, oldLeader, downAt));
+                writes.add(awaitWrite(client, i, downAt));
+            } finally {
+                bringBack(leader);
+            }
+            cluster.awaitQuorum(survivors.size() + 1, timeout);
+        }
+        return new DrillReport(mode, elections, writes);
+    }
+
+    private void takeDown(ConsulContainer leader) {
+        if (mode == Mode.KILL) {
+            leader.kill();
+        } else {
+            leader.pause();
+        }
+    }
+
+    private void bringBack(ConsulContainer leader) {
+        if (mode == Mode.KILL) {
+            leader.restart();
+        } else {
+            leader.unpause();
+        }
+    }
+
+    private Duration awaitElection(ConsulHttpClient client, String oldLeader, long downAt) {
+        while (true) {
+            try {
+                String leader = GSON.fromJson(client.get(LEADER_PATH), String.class);
+                if (leader != null && !leader.isEmpty() && !leader.startsWith(oldLeader + ":")) {
+                    return Duration.ofNanos(System.nanoTime() - downAt);
+                }
+            } catch (IOException | RuntimeException e) {
+                // no leader yet
+            }
+            pause(downAt, "new leader");
+        }
+    }
+
+    private Duration awaitWrite(ConsulHttpClient client, int iteration, long downAt) {
+        byte[] value = String.valueOf(iteration).getBytes(StandardCharsets.UTF_8);
+        while (true) {
+            try {
+                if (client.send("PUT", DRILL_KEY_PATH + iteration, value).getStatus() == 200) {
+                    return Duration.ofNanos(System.nanoTime() - downAt);
+                }
+            } catch (IOException e) {
+                // write rejected until leader is established
+            }
+            pause(downAt, "first write");
+        }
+    }
+
+    private void pause(long downAt, String awaited) {
+        if (System.nanoTime() - downAt > timeout.toNanos()) {
+            throw new RuntimeException(String.format("No %s in %s after leader went down", awaited, timeout));
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during leader drill", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.jetax.testcontainers.consul;
+
+import org.testcontainers.containers.output.OutputFrame;
+import org.testcontainers.containers.wait.strategy.WaitStrategy;
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Completes as soon as agent logs one of {@link #READY_EVENTS}. It is registered as log consumer of container
+ * once and reset on every start, as lines may arrive before waiting begins.
+ */
+class LogReadinessWaitStrategy implements WaitStrategy, Consumer<OutputFrame> {
+
+    private static final String[] READY_EVENTS = {
+            "cluster leadership acquired",
+            "New leader elected",
+            "Synced node info"
+    };
+    private static final Duration DEFAULT_STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration FALLBACK_INTERVAL = Duration.ofSeconds(1);
+
+    private final ConsulContainer container;
+    private final String healthCheckPath;
+    private volatile Duration startupTimeout = DEFAULT_STARTUP_TIMEOUT;
+    private volatile CompletableFuture<String> event = new CompletableFuture<>();
+
+    LogReadinessWaitStrategy(ConsulContainer container, String healthCheckPath) {
+        this.container = container;
+        this.healthCheckPath = healthCheckPath;
+    }
+
+    /**
+     * Forgets events of previous start, must be called before container is started
+     */
+    void reset() {
+        event = new CompletableFuture<>();
+    }
+
+    @Override
+    public void accept(OutputFrame frame) {
+        CompletableFuture<String> current = event;
+        if (current.isDone() || frame.getBytes() == null) {
+            return;
+        }
+        String line = new String(frame.getBytes(), StandardCharsets.UTF_8);
+        for (String readyEvent : READY_EVENTS) {
+            if (line.contains(readyEvent)) {
+                current.complete(line);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void waitUntilReady(WaitStrategyTarget waitStrategyTarget) {
+        long deadline = System.nanoTime() + startupTimeout.toNanos();
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new RuntimeException(String.format("Consul agent has not become ready in %s", startupTimeout));
+            }
+            try {
+                event.get(Math.min(remaining, FALLBACK_INTERVAL.toNanos()), TimeUnit.NANOSECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (httpReady()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for agent", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public WaitStrategy withStartupTimeout(Duration startupTimeout) {
+        this.startupTimeout = startupTimeout;
+        return this;
+    }
+
+    private boolean httpReady() {
+        try {
+            return new ConsulHttpClient(container).send("GET", healthCheckPath, null).getStatus() == 200;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.jetax.testcontainers.consul;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Records {@link ConsulMetrics} of every node at fixed interval, keeping only the last {@code capacity}
+ * snapshots per node. Nodes which can't be scraped, e.g. while restarting, are skipped for that round.
+ */
+public class MetricsSampler implements AutoCloseable {
+
+    private final Map<ConsulContainer, Deque<ConsulMetrics>> rings = new LinkedHashMap<>();
+    private final Duration interval;
+    private final int capacity;
+    private final ScheduledExecutorService scheduler;
+
+    public MetricsSampler(ConsulCluster cluster, Duration interval, int capacity) {
+        this(cluster.getContainers(), interval, capacity);
+    }
+
+    public MetricsSampler(List<ConsulContainer> containers, Duration interval, int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException(String.format("Invalid capacity: %s", capacity));
+        }
+        for (ConsulContainer container : containers) {
+            rings.put(container, new ArrayDeque<>(capacity));
+        }
+        this.interval = interval;
+        this.capacity = capacity;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "consul-metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public MetricsSampler start() {
+        scheduler.scheduleAtFixedRate(this::sample, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * @return recorded snapshots of node, oldest first
+     */
+    public List<ConsulMetrics> getSamples(ConsulContainer container) {
+        Deque<ConsulMetrics> ring = rings.get(container);
+        if (ring == null) {
+            throw new RuntimeException("Container is not sampled");
+        }
+        synchronized (ring) {
+            return new ArrayList<>(ring);
+        }
+    }
+
+    /**
+     * @return highest {@link ConsulMetrics#peak(String)} across all recorded snapshots of all nodes
+     */
+    public OptionalDouble max(String key) {
+        return Arrays.stream(values(ConsulMetrics::peak, key)).max();
+    }
+
+    /**
+     * @return percentile of {@link ConsulMetrics#value(String)} across all recorded snapshots of all nodes,
+     * by nearest rank
+     */
+    public OptionalDouble percentile(String key, double percentile) {
+        double[] values = values(ConsulMetrics::value, key);
+        if (values.length == 0) {
+            return OptionalDouble.empty();
+        }
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile / 100 * values.length);
+        return OptionalDouble.of(values[Math.max(0, Math.min(values.length, rank) - 1)]);
+    }
+
+    public OptionalDouble p99(String key) {
+        return percentile(key, 99);
+    }
+
+    /**
+     * Per second change of {@link ConsulMetrics#value(String)} between two snapshots. If Consul started
+     * a new aggregation interval in between, counter is reset, so its value in the later snapshot is used.
+     */
+    public static OptionalDouble rate(ConsulMetrics from, ConsulMetrics to, String key) {
+        Double fromValue = from.value(key);
+        Double toValue = to.value(key);
+        double seconds = Duration.between(from.getCapturedAt(), to.getCapturedAt()).toNanos() / 1e9;
+        if (toValue == null || seconds <= 0) {
+            return OptionalDouble.empty();
+        }
+        boolean counterReset = to.getCounters().containsKey(key) &&
+                (fromValue == null || !to.getInterval().equals(from.getInterval()));
+        return OptionalDouble.of((counterReset ? toValue : toValue - (fromValue != null ? fromValue : 0)) / seconds);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void sample() {
+        for (Map.Entry<ConsulContainer, Deque<ConsulMetrics>> entry : rings.entrySet()) {
+            ConsulMetrics metrics;
+            try {
+                metrics = entry.getKey().metrics();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            Deque<ConsulMetrics> ring = entry.getValue();
+            synchronized (ring) {
+                if (ring.size() == capacity) {
+                    ring.removeFirst();
+                }
+                ring.addLast(metrics);
+            }
+        }
+    }
+
+    private double[] values(BiFunction<ConsulMetrics, String, Double> extractor, String key) {
+        List<Double> values = new ArrayList<>();
+        for (ConsulContainer container : rings.keySet()) {
+            for (ConsulMetrics metrics : getSamples(container)) {
+                Double value = extractor.apply(metrics, key);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+}
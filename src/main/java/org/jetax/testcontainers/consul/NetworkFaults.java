@@ -0,0 +1,298 @@
+package org.jetax.testcontainers.consul;
+
+import com.github.dockerjava.api.model.Capability;
+import org.testcontainers.containers.Container;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Injects network faults between nodes of {@link ConsulCluster} from inside their containers, with {@code tc netem}
+ * for latency and loss and {@code iptables} for partitions. Latency and loss apply to traffic from node to other
+ * cluster nodes only, so clients on Docker host are not affected.
+ * <p>
+ * Nodes need {@code NET_ADMIN} capability, granted by {@link ConsulCluster#withNetworkFaults()}, and
+ * {@code iproute2} and {@code iptables} packages, which are installed once every node is started if image
+ * lacks them, so nodes need access to package repository then. Latency and loss follow cluster membership:
+ * they are re-applied to peers added or removed by {@link ConsulCluster#addNode()} and
+ * {@link ConsulCluster#removeNode(ConsulContainer)}, while partitions cover only nodes given when they were made.
+ * Faults are recorded once they are applied, and all of them are healed on {@link ConsulCluster#stop()}.
+ */
+public class NetworkFaults {
+
+    private static final String DEVICE = "eth0";
+    /** prio qdisc band for traffic to peers, bands 1-3 keep default priomap */
+    private static final String FAULTY_BAND = "1:4";
+    private static final String TOOLS = "command -v tc >/dev/null && command -v iptables >/dev/null || " +
+            "apk add --no-cache iproute2 iptables >/dev/null";
+    private static final String ROOT_QDISC_DELETE = String.format("tc qdisc del dev %s root", DEVICE);
+
+    private final ConsulCluster cluster;
+    private final Map<ConsulContainer, Netem> netem = new IdentityHashMap<>();
+    /** peers blocked by iptables rules of node, with address the rules were added for */
+    private final Map<ConsulContainer, Map<ConsulContainer, String>> blocked = new IdentityHashMap<>();
+
+    NetworkFaults(ConsulCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    void prepare(ConsulContainer container) {
+        container.withCreateContainerCmdModifier(cmd -> cmd.withCapAdd(Capability.NET_ADMIN));
+    }
+
+    /**
+     * Installs tools into started node if its image lacks them, so that faults are injected without delay
+     */
+    void install(ConsulContainer container) {
+        try {
+            exec(container, TOOLS);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Network faults need iproute2 and iptables, which are missing in image " +
+                    "and could not be installed", e);
+        }
+    }
+
+    /**
+     * Re-applies latency and loss, so that filters match current cluster nodes
+     */
+    synchronized void membershipChanged() {
+        for (Map.Entry<ConsulContainer, Netem> entry : new IdentityHashMap<>(netem).entrySet()) {
+            if (cluster.getContainers().contains(entry.getKey())) {
+                applyNetem(entry.getKey(), entry.getValue());
+            } else {
+                netem.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Delays packets sent by node to other cluster nodes
+     */
+    public NetworkFaults delay(ConsulContainer node, Duration latency) {
+        return delay(node, latency, Duration.ZERO);
+    }
+
+    public synchronized NetworkFaults delay(ConsulContainer node, Duration latency, Duration jitter) {
+        Netem current = netem.getOrDefault(node, Netem.NONE);
+        applyNetem(node, new Netem(latency, jitter, current.lossPercent));
+        return this;
+    }
+
+    /**
+     * Drops given percentage of packets sent by node to other cluster nodes
+     */
+    public synchronized NetworkFaults loss(ConsulContainer node, double percent) {
+        Netem current = netem.getOrDefault(node, Netem.NONE);
+        applyNetem(node, new Netem(current.latency, current.jitter, percent));
+        return this;
+    }
+
+    /**
+     * Drops all traffic between nodes of one side and nodes of the other side, in both directions
+     */
+    public synchronized NetworkFaults partition(Collection<ConsulContainer> side, Collection<ConsulContainer> otherSide) {
+        block(side, otherSide);
+        block(otherSide, side);
+        return this;
+    }
+
+    /**
+     * Partitions node from all other cluster nodes
+     */
+    public NetworkFaults isolate(ConsulContainer node) {
+        Set<ConsulContainer> others = new LinkedHashSet<>(cluster.getContainers());
+        others.remove(node);
+        return partition(Collections.singleton(node), others);
+    }
+
+    /**
+     * Removes all faults of node, including rules of its peers which drop traffic from and to it.
+     * Other rules of containers are left in place.
+     */
+    public synchronized NetworkFaults heal(ConsulContainer node) {
+        RuntimeException failure = null;
+        if (netem.remove(node) != null) {
+            failure = attempt(failure, () -> exec(node, ROOT_QDISC_DELETE));
+        }
+        Map<ConsulContainer, String> peers = blocked.remove(node);
+        if (peers != null) {
+            failure = attempt(failure, () -> unblock(node, peers.values()));
+        }
+        for (Map.Entry<ConsulContainer, Map<ConsulContainer, String>> entry : new ArrayList<>(blocked.entrySet())) {
+            String address = entry.getValue().remove(node);
+            if (address == null) {
+                continue;
+            }
+            if (entry.getValue().isEmpty()) {
+                blocked.remove(entry.getKey());
+            }
+            failure = attempt(failure, () -> unblock(entry.getKey(), Collections.singleton(address)));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return this;
+    }
+
+    public synchronized NetworkFaults heal() {
+        Set<ConsulContainer> faulty = Collections.newSetFromMap(new IdentityHashMap<>());
+        faulty.addAll(netem.keySet());
+        faulty.addAll(blocked.keySet());
+        RuntimeException failure = null;
+        for (ConsulContainer node : faulty) {
+            // node may be stopped, its faults are gone with it; state is cleared by heal(node) anyway
+            failure = attempt(failure, () -> heal(node));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return this;
+    }
+
+    void healQuietly() {
+        try {
+            heal();
+        } catch (RuntimeException e) {
+            // containers are going to be stopped anyway
+        }
+    }
+
+    private void applyNetem(ConsulContainer node, Netem settings) {
+        StringBuilder script = new StringBuilder()
+                .append(String.format("tc qdisc replace dev %s root handle 1: prio bands 4", DEVICE))
+                .append(String.format(" && tc qdisc replace dev %s parent %s handle 40: netem%s", DEVICE, FAULTY_BAND,
+                        settings.toOptions()));
+        for (ConsulContainer peer : cluster.getContainers()) {
+            if (peer != null && peer != node) {
+                script.append(String.format(" && tc filter add dev %s parent 1:0 protocol ip prio 1 u32 " +
+                        "match ip dst %s/32 flowid %s", DEVICE, cluster.getAddress(peer), FAULTY_BAND));
+            }
+        }
+        // filters are added again, so start from a clean qdisc
+        if (netem.containsKey(node)) {
+            exec(node, ROOT_QDISC_DELETE);
+            netem.remove(node);
+        }
+        try {
+            exec(node, script.toString());
+        } catch (RuntimeException e) {
+            // qdisc may have been created before a filter failed
+            execQuietly(node, ROOT_QDISC_DELETE);
+            throw e;
+        }
+        netem.put(node, settings);
+    }
+
+    private void block(Collection<ConsulContainer> nodes, Collection<ConsulContainer> peers) {
+        for (ConsulContainer node : nodes) {
+            Map<ConsulContainer, String> nodeBlocked = blocked.getOrDefault(node, Collections.emptyMap());
+            Map<ConsulContainer, String> added = new IdentityHashMap<>();
+            for (ConsulContainer peer : peers) {
+                // rules are added once per pair, so that a single delete removes them
+                if (peer != node && !nodeBlocked.containsKey(peer)) {
+                    added.put(peer, cluster.getAddress(peer));
+                }
+            }
+            if (added.isEmpty()) {
+                continue;
+            }
+            try {
+                exec(node, rules("-I", added.values(), " && "));
+            } catch (RuntimeException e) {
+                // some of the rules may have been inserted before one failed
+                execQuietly(node, rules("-D", added.values(), "; "));
+                throw e;
+            }
+            blocked.computeIfAbsent(node, n -> new IdentityHashMap<>()).putAll(added);
+        }
+    }
+
+    private void unblock(ConsulContainer node, Collection<String> addresses) {
+        exec(node, rules("-D", addresses, " && "));
+    }
+
+    private static String rules(String action, Collection<String> addresses, String separator) {
+        List<String> commands = new ArrayList<>();
+        for (String address : addresses) {
+            commands.add(String.format("iptables %1$s INPUT -s %2$s -j DROP", action, address));
+            commands.add(String.format("iptables %1$s OUTPUT -d %2$s -j DROP", action, address));
+        }
+        return String.join(separator, commands);
+    }
+
+    private static void execQuietly(ConsulContainer node, String script) {
+        try {
+            exec(node, script);
+        } catch (RuntimeException e) {
+            // best effort cleanup, original failure is reported
+        }
+    }
+
+    private static RuntimeException attempt(RuntimeException failure, Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * Runs script as root and fails if any command in it fails
+     */
+    private static void exec(ConsulContainer node, String script) {
+        Container.ExecResult result;
+        try {
+            result = node.execInContainer("sh", "-c", "( " + script + " ) 2>&1; echo \"exit=$?\"");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to inject network fault", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while injecting network fault", e);
+        }
+        String output = result.getStdout().trim();
+        if (!output.endsWith("exit=0")) {
+            throw new RuntimeException(String.format("Network fault command failed on %s: %s\n%s",
+                    node.getContainerId(), script, output));
+        }
+    }
+
+    private static class Netem {
+        private static final Netem NONE = new Netem(Duration.ZERO, Duration.ZERO, 0);
+
+        private final Duration latency;
+        private final Duration jitter;
+        private final double lossPercent;
+
+        Netem(Duration latency, Duration jitter, double lossPercent) {
+            this.latency = latency;
+            this.jitter = jitter;
+            this.lossPercent = lossPercent;
+        }
+
+        String toOptions() {
+            StringBuilder options = new StringBuilder();
+            if (!latency.isZero()) {
+                options.append(" delay ").append(latency.toMillis()).append("ms");
+                if (!jitter.isZero()) {
+                    options.append(' ').append(jitter.toMillis()).append("ms");
+                }
+            }
+            if (lossPercent > 0) {
+                options.append(" loss ").append(lossPercent).append('%');
+            }
+            return options.toString();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jetax.testcontainers.consul;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams properties file line by line, see {@link KVSource#fromProperties(Path)}
+ */
+class PropertiesKVSource implements KVSource {
+
+    private final Path file;
+
+    PropertiesKVSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void forEach(KVConsumer consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!")) {
+                    continue;
+                }
+                int eq = trimmed.indexOf('=');
+                int colon = trimmed.indexOf(':');
+                int separator = eq < 0 ? colon : colon < 0 ? eq : Math.min(eq, colon);
+                String key = separator < 0 ? trimmed : trimmed.substring(0, separator).trim();
+                String value = separator < 0 ? "" : trimmed.substring(separator + 1).trim();
+                consumer.accept(key, value.getBytes(StandardCharsets.UTF_8), 0);
+            }
+        }
+    }
+}
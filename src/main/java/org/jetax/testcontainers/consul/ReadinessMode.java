@@ -0,0 +1,14 @@
+package org.jetax.testcontainers.consul;
+
+/**
+ * How {@link ConsulContainer#start()} decides that agent is ready
+ */
+public enum ReadinessMode {
+    /** HTTP API is polled until it responds, the default */
+    HTTP,
+    /**
+     * Agent log is followed until agent reports leadership or node sync. HTTP API is still checked
+     * once a second, in case the expected line is missed, e.g. with a different log format.
+     */
+    LOG
+}
@@ -0,0 +1,164 @@
+package org.jetax.testcontainers.consul;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.exception.NotFoundException;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.DockerClientFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Local image of a started and seeded container, tagged by hash of everything which affects its state.
+ * Image is committed after the first successful start and seeding. Later containers with the same inputs start
+ * from it and restore raft snapshot baked into it, instead of seeding again.
+ * <p>
+ * Dev agents keep state in memory only, so the state is carried as snapshot file, not as agent data dir.
+ * <p>
+ * Tag is computed on first image lookup at container start, which reads KV seeds to hash them, so seeds
+ * of containers with seeded image must be readable more than once, as file sources are.
+ */
+final class SeededImage {
+
+    static final String REPOSITORY = "testcontainers-consul-seeded";
+    private static final String SNAPSHOT_FILE = "/consul/seed.snap";
+    private static final int TAG_LENGTH = 32;
+
+    private static final Logger log = LoggerFactory.getLogger(SeededImage.class);
+
+    /** tags being committed in this JVM, so that containers started at once commit their image once */
+    private static final Set<String> capturing = ConcurrentHashMap.newKeySet();
+
+    private final Supplier<String> fingerprint;
+    private final Consumer<ConsulContainer> fixture;
+    private volatile String tag;
+
+    private SeededImage(Supplier<String> fingerprint, Consumer<ConsulContainer> fixture) {
+        this.fingerprint = fingerprint;
+        this.fixture = fixture;
+    }
+
+    /**
+     * @param fingerprint identifies configuration, command, version, KV seeds and fixture id of container,
+     *                    see {@link ConsulContainerBuilder#fingerprint()}, it is called once on first lookup
+     */
+    static SeededImage of(Supplier<String> fingerprint, Consumer<ConsulContainer> fixture) {
+        return new SeededImage(fingerprint, fixture);
+    }
+
+    /**
+     * @return SHA-256 of keys, values and flags of all seeds, in order
+     */
+    static String hashSeeds(List<KVSource> seeds) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (KVSource seed : seeds) {
+                seed.forEach((key, value, flags) -> {
+                    digest.update((byte) 0);
+                    digest.update(key.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(flags).putInt(value.length)
+                            .array());
+                    digest.update(value);
+                });
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new RuntimeException("Failed to hash seed data", e);
+        }
+    }
+
+    String getImageName() {
+        return REPOSITORY + ":" + getTag();
+    }
+
+    private String getTag() {
+        if (tag == null) {
+            tag = fingerprint.get().substring(0, TAG_LENGTH);
+        }
+        return tag;
+    }
+
+    boolean exists() {
+        try {
+            DockerClientFactory.instance().client().inspectImageCmd(getImageName()).exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    void runFixture(ConsulContainer container) {
+        if (fixture != null) {
+            fixture.accept(container);
+        }
+    }
+
+    /**
+     * Bakes current state of started container into image. Image is only a cache, so failures are logged
+     * and the container is left running as it is. Skipped if another container commits the same image.
+     */
+    void capture(ConsulContainer container) {
+        String tag = getTag();
+        if (!capturing.add(tag)) {
+            return;
+        }
+        try {
+            DockerClient client = DockerClientFactory.instance().client();
+            byte[] archive = ConsulContainer.tar(Collections.singletonMap(SNAPSHOT_FILE, container.snapshot()));
+            client.copyArchiveToContainerCmd(container.getContainerId())
+                    .withTarInputStream(new ByteArrayInputStream(archive))
+                    .withRemotePath("/")
+                    .exec();
+            client.commitCmd(container.getContainerId())
+                    .withRepository(REPOSITORY)
+                    .withTag(tag)
+                    .exec();
+            log.info("Committed seeded image {}", getImageName());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to commit seeded image {}, later containers will be seeded again", getImageName(), e);
+        } finally {
+            capturing.remove(tag);
+        }
+    }
+
+    /**
+     * Restores state baked into image the container was started from
+     */
+    void restore(ConsulContainer container) {
+        DockerClient client = DockerClientFactory.instance().client();
+        try (InputStream archive = client.copyArchiveFromContainerCmd(container.getContainerId(), SNAPSHOT_FILE).exec();
+             TarArchiveInputStream tar = new TarArchiveInputStream(archive)) {
+            if (tar.getNextTarEntry() == null) {
+                throw new RuntimeException(String.format("No seed snapshot in image %s", getImageName()));
+            }
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = tar.read(buffer)) != -1) {
+                snapshot.write(buffer, 0, read);
+            }
+            container.restore(snapshot.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read seed snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.jetax.testcontainers.consul;
+
+import java.time.Duration;
+
+/**
+ * Receives timings of startup phases, listeners are called on threads starting containers.
+ */
+@FunctionalInterface
+public interface StartupListener {
+
+    void onPhase(ConsulContainer container, StartupPhase phase, Duration duration);
+
+    default void onClusterPhase(ConsulCluster cluster, StartupPhase phase, Duration duration) {
+    }
+
+    default void onClusterStarted(ConsulCluster cluster, ClusterStartupReport report) {
+    }
+}
@@ -0,0 +1,26 @@
+package org.jetax.testcontainers.consul;
+
+/**
+ * Steps of container and cluster startup reported to {@link StartupListener}
+ */
+public enum StartupPhase {
+    /** image lookup, including pull if it is not present locally */
+    IMAGE_RESOLVE,
+    /** building of container configuration: files, ports, environment and command */
+    CONFIGURE,
+    /** container creation and copying of files into it */
+    CREATE,
+    /** from container creation till wait strategy is invoked */
+    START,
+    /** wait for HTTP API to be ready */
+    HEALTH_WAIT,
+
+    /** start of the first cluster node, which others join */
+    SEED,
+    /** start of the remaining cluster nodes, joining the seed */
+    JOIN,
+    /** wait for raft quorum and leader agreement across cluster */
+    QUORUM,
+    /** writing of KV seeds through the first node */
+    KV_SEED
+}
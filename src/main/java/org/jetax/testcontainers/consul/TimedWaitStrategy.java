@@ -0,0 +1,32 @@
+package org.jetax.testcontainers.consul;
+
+import org.testcontainers.containers.wait.strategy.WaitStrategy;
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget;
+
+import java.time.Duration;
+
+/**
+ * Notifies container when waiting begins and ends, so that start and health wait phases can be told apart.
+ */
+class TimedWaitStrategy implements WaitStrategy {
+
+    private final WaitStrategy delegate;
+    private final ConsulContainer container;
+
+    TimedWaitStrategy(WaitStrategy delegate, ConsulContainer container) {
+        this.delegate = delegate;
+        this.container = container;
+    }
+
+    @Override
+    public void waitUntilReady(WaitStrategyTarget waitStrategyTarget) {
+        container.phaseCompleted(StartupPhase.START);
+        delegate.waitUntilReady(waitStrategyTarget);
+        container.phaseCompleted(StartupPhase.HEALTH_WAIT);
+    }
+
+    @Override
+    public WaitStrategy withStartupTimeout(Duration startupTimeout) {
+        return new TimedWaitStrategy(delegate.withStartupTimeout(startupTimeout), container);
+    }
+}
@@ -11,11 +11,15 @@ import org.junit.Test;
 import org.testcontainers.containers.ContainerState;
 import org.testcontainers.containers.Network;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -91,6 +95,56 @@ public class ConsulClusterTest {
         cluster.stop();
     }
 
+    @Test
+    public void testClusterCanBeRunWithLimitedParallelism() throws Exception {
+        // given
+        Integer clusterSize = 3;
+
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.3.0")
+                .cluster(clusterSize)
+                .withParallelism(1);
+
+        // when
+        cluster.start();
+
+        // then
+        List<ConsulContainer> containers = cluster.getContainers();
+        assertEquals(clusterSize, Integer.valueOf(containers.size()));
+        assertTrue(containers.stream().allMatch(ContainerState::isRunning));
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testClusterAndContainerCanBeStartedAsync() throws Exception {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.3.0")
+                .cluster(2);
+        ConsulContainer standalone = new ConsulContainerBuilder()
+                .withContainerVersion("1.3.0")
+                .build();
+
+        // when
+        CompletableFuture<ConsulCluster> clusterStarted = cluster.startAsync();
+        List<CompletableFuture<ConsulContainer>> nodes = cluster.getNodeFutures();
+        CompletableFuture<Void> all = CompletableFuture.allOf(clusterStarted, standalone.startAsync());
+        all.get(2, TimeUnit.MINUTES);
+
+        // then
+        assertEquals(2, nodes.size());
+        assertTrue(nodes.stream().allMatch(node -> node.join().isRunning()));
+        assertTrue(standalone.isRunning());
+
+        // finally
+        cluster.stop();
+        standalone.stop();
+    }
+
     @Test
     public void testClusterPropagatesConfigurationToAllNodes() throws Exception {
         // given
@@ -136,4 +190,220 @@ public class ConsulClusterTest {
         // finally
         cluster.stop();
     }
+
+    @Test
+    public void testDatacentersAreFederated() throws Exception {
+        // given
+        ConsulFederation federation = new ConsulFederationBuilder()
+                .withDatacenter("dc1", new ConsulContainerBuilder().withContainerVersion("1.4.0"), 1)
+                .withDatacenter("dc2", new ConsulContainerBuilder().withContainerVersion("1.4.0"), 1)
+                .build();
+
+        // when
+        federation.start();
+
+        // then
+        ConsulContainer secondary = federation.getCluster("dc2").getContainers().get(0);
+        ConsulClient consulClient = new ConsulClient(secondary.getContainerIpAddress(),
+                secondary.getMappedPort(secondary.getHttpPort()));
+        List<String> datacenters = consulClient.getCatalogDatacenters().getValue();
+        assertTrue(datacenters.contains("dc1"));
+        assertTrue(datacenters.contains("dc2"));
+
+        // finally
+        federation.stop();
+    }
+
+    @Test
+    public void testServersAndClientsAreStartedTogether() throws Exception {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.4.0")
+                .cluster(3, 2, null);
+
+        // when
+        cluster.start();
+
+        // then
+        List<ConsulContainer> containers = cluster.getContainers();
+        assertEquals(5, containers.size());
+        assertTrue(containers.stream().allMatch(ContainerState::isRunning));
+
+        ConsulContainer client = containers.get(4);
+        ConsulClient consulClient = new ConsulClient(client.getContainerIpAddress(),
+                client.getMappedPort(client.getHttpPort()));
+        assertEquals(3, consulClient.getStatusPeers().getValue().size());
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testNetworkFaultsAreInjectedAndHealed() throws Exception {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(2, Network.newNetwork())
+                .withNetworkFaults();
+        cluster.start();
+        ConsulContainer node = cluster.getContainers().get(0);
+
+        // when
+        cluster.faults()
+                .delay(node, Duration.ofMillis(100))
+                .loss(node, 10)
+                .isolate(node);
+        String qdiscs = node.execInContainer("tc", "qdisc").getStdout();
+        String rules = node.execInContainer("iptables", "-S").getStdout();
+        cluster.faults().heal();
+
+        // then
+        assertTrue(qdiscs.contains("netem") && qdiscs.contains("delay 100"));
+        assertTrue(rules.contains("DROP"));
+        assertFalse(node.execInContainer("tc", "qdisc").getStdout().contains("netem"));
+        assertFalse(node.execInContainer("iptables", "-S").getStdout().contains("DROP"));
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testClusterStartWaitsForQuorum() {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(3, 0, null)
+                .waitingForQuorum(Duration.ofMinutes(1));
+
+        // when
+        cluster.start();
+
+        // then
+        List<String> leaders = cluster.getContainers().stream()
+                .map(node -> new ConsulClient(node.getContainerIpAddress(), node.getMappedPort(node.getHttpPort()))
+                        .getStatusLeader().getValue())
+                .distinct()
+                .collect(Collectors.toList());
+        assertEquals(1, leaders.size());
+        assertFalse(leaders.get(0).isEmpty());
+        for (ConsulContainer node : cluster.getContainers()) {
+            ConsulClient consulClient = new ConsulClient(node.getContainerIpAddress(), node.getMappedPort(node.getHttpPort()));
+            assertEquals(3, consulClient.getStatusPeers().getValue().size());
+        }
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testSingleNodeIsHealedOnBothSidesOfPartition() throws Exception {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(3, Network.newNetwork())
+                .withNetworkFaults();
+        cluster.start();
+        ConsulContainer node = cluster.getContainers().get(0);
+        List<ConsulContainer> peers = cluster.getContainers().subList(1, 3);
+        cluster.faults().isolate(node);
+        node.execInContainer("iptables", "-A", "INPUT", "-p", "tcp", "--dport", "9999", "-j", "ACCEPT");
+
+        // when
+        cluster.faults().heal(node);
+
+        // then
+        for (ConsulContainer peer : peers) {
+            assertFalse(peer.execInContainer("iptables", "-S").getStdout().contains("DROP"));
+            assertTrue(node.execInContainer("sh", "-c", "ping -c 1 -W 2 " + cluster.getAddress(peer) + " && echo reachable")
+                    .getStdout().contains("reachable"));
+        }
+        String rules = node.execInContainer("iptables", "-S").getStdout();
+        assertFalse(rules.contains("DROP"));
+        assertTrue(rules.contains("--dport 9999"));
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testLeaderDrillMeasuresFailover() {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(3, 0, null);
+        cluster.start();
+        ConsulContainer leader = cluster.getLeader();
+        assertNotNull(leader);
+        assertEquals(2, cluster.getFollowers().size());
+
+        // when
+        DrillReport report = new LeaderDrill(cluster)
+                .withMode(LeaderDrill.Mode.KILL)
+                .run(2);
+
+        // then
+        assertEquals(2, report.getElectionTimes().size());
+        for (int i = 0; i < 2; i++) {
+            assertTrue(report.getFirstWriteTimes().get(i).compareTo(report.getElectionTimes().get(i)) >= 0);
+        }
+        assertEquals(3, cluster.getPeers().size());
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testNodesAreAddedRemovedAndReplaced() {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(3, 0, null);
+        cluster.start();
+        ConsulContainer anchor = cluster.getContainers().get(0);
+        new ConsulClient(anchor.getContainerIpAddress(), anchor.getMappedPort(anchor.getHttpPort()))
+                .setKVValue("kept", "value");
+
+        // when
+        ConsulContainer added = cluster.addNode();
+        int peersAfterAdd = cluster.getPeers().size();
+        cluster.removeNode(added);
+        int peersAfterRemove = cluster.getPeers().size();
+        cluster.rollingRestart();
+
+        // then
+        assertEquals(4, peersAfterAdd);
+        assertEquals(3, peersAfterRemove);
+        List<ConsulContainer> containers = cluster.getContainers();
+        assertEquals(3, containers.size());
+        assertFalse(containers.contains(anchor));
+        ConsulContainer node = containers.get(0);
+        assertEquals("value", new ConsulClient(node.getContainerIpAddress(), node.getMappedPort(node.getHttpPort()))
+                .getKVValue("kept").getValue().getDecodedValue());
+
+        // finally
+        cluster.stop();
+    }
+
+    @Test
+    public void testNodeIsRemovedFromSeedClusterWaitingForQuorum() {
+        // given
+        ConsulCluster cluster = new ConsulContainerBuilder()
+                .withContainerVersion("1.4.0")
+                .cluster(3, Network.newNetwork())
+                .waitingForQuorum(Duration.ofMinutes(1));
+        cluster.start();
+        ConsulContainer removed = cluster.getContainers().get(2);
+
+        // when
+        cluster.removeNode(removed);
+
+        // then
+        assertEquals(2, cluster.getContainers().size());
+        assertEquals(2, cluster.getPeers().size());
+        assertFalse(removed.isRunning());
+
+        // finally
+        cluster.stop();
+    }
 }
@@ -1,8 +1,14 @@
 package org.jetax.testcontainers.consul;
 
 import com.google.gson.Gson;
+import org.jetax.testcontainers.consul.ConsulConfiguration.Limits;
+import org.jetax.testcontainers.consul.ConsulConfiguration.Performance;
+import org.jetax.testcontainers.consul.ConsulConfiguration.TLSConfig;
+import org.jetax.testcontainers.consul.ConsulConfiguration.Telemetry;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -74,4 +80,99 @@ public class ConsulConfigurationTest {
         assertEquals(replicationToken, config.getAcl().getTokens().getReplication());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        // given
+        ConsulConfiguration consulConfiguration = new ConsulConfiguration();
+        consulConfiguration.setNodeName("my-node");
+
+        // when
+        ConsulConfigurationSnapshot snapshot = consulConfiguration.freeze();
+        consulConfiguration.setNodeName("other-node");
+
+        // then
+        assertEquals("{\"node_name\":\"my-node\"}", snapshot.toJson());
+        assertEquals("my-node", snapshot.toConfiguration().getNodeName());
+        assertNotEquals(snapshot.getHash(), consulConfiguration.freeze().getHash());
+    }
+
+    @Test
+    public void testSnapshotHashIsStable() {
+        // given
+        ConsulConfiguration first = new ConsulContainerBuilder().withDatacenter("dc").withMasterToken("token").buildConfig();
+        ConsulConfiguration second = new ConsulContainerBuilder().withDatacenter("dc").withMasterToken("token").buildConfig();
+
+        // then
+        assertEquals(first.freeze().getHash(), second.freeze().getHash());
+        assertEquals(first.freeze(), second.freeze());
+    }
+
+    @Test
+    public void testSnapshotPointsTlsFilesToContainer() {
+        // given
+        TLSConfig tlsConfig = new TLSConfig();
+        tlsConfig.setCaFile("tls/ca.cert");
+        tlsConfig.setCertFile("tls/consul.cert");
+        tlsConfig.setKeyFile("tls/consul.key");
+
+        ConsulConfiguration consulConfiguration = new ConsulConfiguration();
+        consulConfiguration.setTlsConfig(tlsConfig);
+
+        // when
+        ConsulConfigurationSnapshot snapshot = consulConfiguration.freeze();
+
+        // then
+        assertNull(consulConfiguration.getCaFile());
+        assertEquals(ConsulContainer.CA_FILE_NAME, snapshot.toConfiguration().getCaFile());
+        assertEquals("tls/ca.cert", snapshot.toConfiguration().getTlsConfig().getCaFile());
+    }
+
+    @Test
+    public void testGeneratedTlsCertificatesAreCached() {
+        // given
+        ConsulConfiguration consulConfiguration = new ConsulConfiguration();
+        consulConfiguration.setTlsConfig(TLSConfig.generated());
+        ConsulCertificates certificates = ConsulCertificates.getInstance();
+
+        // when
+        ConsulConfigurationSnapshot snapshot = consulConfiguration.freeze();
+        ConsulCertificates.NodeCertificate first = certificates.nodeCertificate("dc", true,
+                Collections.singletonList("consul-0"));
+        ConsulCertificates.NodeCertificate second = certificates.nodeCertificate("dc", true,
+                Collections.singletonList("consul-0"));
+
+        // then
+        assertEquals(ConsulContainer.KEY_FILE_NAME, snapshot.toConfiguration().getKeyFile());
+        assertSame(first, second);
+        assertTrue(new String(certificates.getCaPem(), StandardCharsets.UTF_8).startsWith("-----BEGIN CERTIFICATE"));
+        assertNotSame(first, certificates.nodeCertificate("dc", false, Collections.singletonList("consul-0")));
+    }
+
+    @Test
+    public void testTuningSectionsAreSerialized() {
+        // given
+        Performance performance = new Performance();
+        performance.setRaftMultiplier(1);
+        performance.setLeaveDrainTime("1s");
+
+        Limits limits = new Limits();
+        limits.setRpcRate(100.0);
+        limits.setRpcMaxBurst(200);
+
+        Telemetry telemetry = new Telemetry();
+        telemetry.setPrometheusRetentionTime("60s");
+        telemetry.setDisableHostname(true);
+
+        // when
+        String json = gson.toJson(new ConsulContainerBuilder()
+                .withPerformance(performance)
+                .withLimits(limits)
+                .withTelemetry(telemetry)
+                .buildConfig());
+
+        // then
+        assertEquals("{\"performance\":{\"raft_multiplier\":1,\"leave_drain_time\":\"1s\"}," +
+                "\"limits\":{\"rpc_rate\":100.0,\"rpc_max_burst\":200}," +
+                "\"telemetry\":{\"prometheus_retention_time\":\"60s\",\"disable_hostname\":true}}", json);
+    }
+}
@@ -0,0 +1,74 @@
+package org.jetax.testcontainers.consul;
+
+import com.ecwid.consul.v1.ConsulClient;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ConsulContainerPoolTest {
+
+    private static final String DEFAULT_DC = "dc";
+
+    @Test
+    public void testReleasedContainerIsScrubbedAndLeasedAgain() {
+        // given
+        ConsulContainerBuilder builder = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.4.0");
+
+        try (ConsulContainerPool pool = new ConsulContainerPool(0, 1, Duration.ofMinutes(1))) {
+            ConsulContainer first = pool.lease(builder);
+            ConsulClient client = new ConsulClient(first.getContainerIpAddress(), first.getMappedPort(first.getHttpPort()));
+            client.setKVValue("key", "value");
+
+            // when
+            pool.release(first);
+            ConsulContainer second = pool.lease(new ConsulContainerBuilder()
+                    .withDatacenter(DEFAULT_DC)
+                    .withContainerVersion("1.4.0"));
+
+            // then
+            assertSame(first, second);
+            assertNull(client.getKVValue("key").getValue());
+        }
+    }
+
+    @Test
+    public void testBuildersDifferingInSeedsGetOwnSeededContainers() {
+        // given
+        ConsulContainerBuilder first = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.4.0")
+                .withKVSeed(KVSource.of(Collections.singletonMap("seed", "first")));
+        ConsulContainerBuilder second = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withContainerVersion("1.4.0")
+                .withKVSeed(KVSource.of(Collections.singletonMap("seed", "second")));
+
+        try (ConsulContainerPool pool = new ConsulContainerPool(0, 1, Duration.ofMinutes(1))) {
+            ConsulContainer firstContainer = pool.lease(first);
+            pool.release(firstContainer);
+
+            // when
+            ConsulContainer secondContainer = pool.lease(second);
+            ConsulContainer firstAgain = pool.lease(first);
+
+            // then
+            assertNotSame(firstContainer, secondContainer);
+            assertSame(firstContainer, firstAgain);
+            assertEquals("second", kvValue(secondContainer, "seed"));
+            assertEquals("first", kvValue(firstAgain, "seed"));
+        }
+    }
+
+    private static String kvValue(ConsulContainer container, String key) {
+        return new ConsulClient(container.getContainerIpAddress(), container.getMappedPort(container.getHttpPort()))
+                .getKVValue(key).getValue().getDecodedValue();
+    }
+}
@@ -4,11 +4,26 @@ import com.ecwid.consul.v1.ConsulClient;
 import com.ecwid.consul.v1.OperationException;
 import com.ecwid.consul.v1.kv.model.PutParams;
 import org.junit.Test;
-
+import org.testcontainers.DockerClientFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.jetax.testcontainers.consul.ConsulConfiguration.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ConsulContainerTest {
@@ -125,6 +140,253 @@ public class ConsulContainerTest {
         assertEquals(403, ((OperationException) actualException).getStatusCode());
     }
 
+    @Test
+    public void testBaselineIsRestoredWithACL() {
+        // given
+        String masterToken = UUID.randomUUID().toString();
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withDatacenter(DEFAULT_DC)
+                .withACLEnabled()
+                .withACLDefaultPolicy("deny")
+                .withMasterToken(masterToken)
+                .withContainerVersion("1.4.0")
+                .build();
+        cc.start();
+
+        ConsulClient client = new ConsulClient(cc.getContainerIpAddress(), cc.getMappedPort(cc.getHttpPort()));
+        client.setKVValue("seeded", "1", masterToken, new PutParams());
+        cc.captureBaseline();
+        client.setKVValue("leaked", "1", masterToken, new PutParams());
+
+        // when
+        cc.restoreBaseline();
+
+        // then
+        assertNotNull(client.getKVValue("seeded", masterToken).getValue());
+        assertNull(client.getKVValue("leaked", masterToken).getValue());
+    }
+
+    @Test
+    public void testStartupPhasesAreReported() {
+        // given
+        List<StartupPhase> reported = new CopyOnWriteArrayList<>();
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withStartupListener((container, phase, duration) -> reported.add(phase))
+                .build();
+
+        // when
+        cc.start();
+
+        // then
+        List<StartupPhase> expected = Arrays.asList(StartupPhase.IMAGE_RESOLVE, StartupPhase.CONFIGURE,
+                StartupPhase.CREATE, StartupPhase.START, StartupPhase.HEALTH_WAIT);
+        assertEquals(expected, reported);
+        assertEquals(expected.size(), cc.getStartupTimings().size());
+    }
+
+    @Test
+    public void testKVSeedIsWrittenBeforeStartReturns() throws Exception {
+        // given
+        Path properties = Files.createTempFile("seed", ".properties");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("props/key" + i + "=value" + i);
+        }
+        Files.write(properties, lines);
+
+        Path json = Files.createTempFile("seed", ".json");
+        Files.write(json, ("{\"app\": {\"db\": {\"url\": \"jdbc:h2:mem\"}, \"port\": 8080, " +
+                "\"enabled\": true, \"profile\": null}}").getBytes());
+
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withKVSeed(KVSource.fromProperties(properties))
+                .withKVSeed(KVSource.fromJson(json))
+                .build();
+
+        // when
+        cc.start();
+
+        // then
+        ConsulClient client = new ConsulClient(cc.getContainerIpAddress(), cc.getMappedPort(cc.getHttpPort()));
+        assertEquals(1000, client.getKVKeysOnly("props/").getValue().size());
+        assertEquals("value999", client.getKVValue("props/key999").getValue().getDecodedValue());
+        assertEquals("jdbc:h2:mem", client.getKVValue("app/db/url").getValue().getDecodedValue());
+        assertEquals("8080", client.getKVValue("app/port").getValue().getDecodedValue());
+        assertEquals("true", client.getKVValue("app/enabled").getValue().getDecodedValue());
+        assertNotNull(client.getKVValue("app/profile").getValue());
+        assertNull(client.getKVValue("app/profile").getValue().getDecodedValue());
+    }
+
+    @Test
+    public void testWatchCompletesOnChange() throws Exception {
+        // given
+        ConsulContainer cc = new ConsulContainer();
+        cc.start();
+        ConsulClient client = new ConsulClient(cc.getContainerIpAddress(), cc.getMappedPort(cc.getHttpPort()));
+
+        CompletableFuture<Map<String, String>> watch = cc.watcher()
+                .kv("app/", values -> "ready".equals(values.get("app/state")));
+
+        // when
+        client.setKVValue("app/state", "starting");
+        client.setKVValue("app/state", "ready");
+
+        // then
+        assertEquals("ready", watch.get(10, TimeUnit.SECONDS).get("app/state"));
+        cc.stop();
+    }
+
+    @Test
+    public void testServerDataIsKeptOnTmpfs() throws Exception {
+        // given
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .server()
+                .withStorage(ConsulStorage.tmpfs("64m"))
+                .build();
+
+        // when
+        cc.start();
+
+        // then
+        String mounts = cc.execInContainer("cat", "/proc/mounts").getStdout();
+        assertTrue(mounts.contains("tmpfs " + ConsulStorage.DATA_DIR));
+        cc.stop();
+    }
+
+    @Test
+    public void testMetricsAreSampled() throws Exception {
+        // given
+        Telemetry telemetry = new Telemetry();
+        telemetry.setDisableHostname(true);
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withTelemetry(telemetry)
+                .build();
+        cc.start();
+
+        // when
+        ConsulMetrics metrics = cc.metrics();
+        List<ConsulMetrics> samples;
+        try (MetricsSampler sampler = new MetricsSampler(Collections.singletonList(cc), Duration.ofMillis(100), 5)) {
+            sampler.start();
+            Thread.sleep(1000);
+            samples = sampler.getSamples(cc);
+
+            // then
+            assertTrue(sampler.max("consul.runtime.num_goroutines").getAsDouble() > 0);
+            assertTrue(sampler.p99("consul.runtime.num_goroutines").isPresent());
+        }
+        assertNotNull(metrics.value("consul.runtime.num_goroutines"));
+        assertEquals(5, samples.size());
+        cc.stop();
+    }
+
+    @Test
+    public void testLoadReportCountsAllRequests() {
+        // given
+        ConsulContainer cc = new ConsulContainer();
+        cc.start();
+
+        // when
+        KVLoadReport report = new KVLoadGenerator(cc)
+                .withRate(200)
+                .withKeys(100)
+                .withReadRatio(0.5)
+                .run(Duration.ofSeconds(2));
+
+        // then
+        assertEquals(0, report.getErrors());
+        assertEquals(400, report.getReads() + report.getWrites());
+        assertTrue(report.getReads() > 0 && report.getWrites() > 0);
+        assertTrue(report.readPercentile(99).compareTo(report.readPercentile(50)) >= 0);
+        cc.stop();
+    }
+
+    @Test
+    public void testLogsAreCapturedWithinLimit() {
+        // given
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withLogCapture(1024)
+                .build();
+
+        // when
+        cc.start();
+
+        // then
+        ConsulLogCapture capture = cc.getLogCapture();
+        List<ConsulLogLine> lines = capture.getLines();
+        assertTrue(lines.stream().mapToInt(line -> line.toString().length()).sum() <= 1024);
+        assertTrue(capture.getDropped() > 0);
+        assertTrue(capture.atLeast("INFO").stream().allMatch(line -> !"DEBUG".equals(line.getLevel())));
+        assertTrue(capture.query(line -> line.getSubsystem() != null).size() > 0);
+        cc.stop();
+    }
+
+    @Test
+    public void testLogsAreCapturedAfterRestart() throws Exception {
+        // given
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withLogCapture(64 * 1024)
+                .build();
+        cc.start();
+        cc.kill();
+        cc.getLogCapture().clear();
+
+        // when
+        cc.restart();
+
+        // then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (cc.getLogCapture().getLines().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertFalse(cc.getLogCapture().getLines().isEmpty());
+        cc.stop();
+    }
+
+    @Test
+    public void testContainerIsReadyOnLogEvent() {
+        // given
+        ConsulContainer cc = new ConsulContainerBuilder()
+                .withReadiness(ReadinessMode.LOG)
+                .build();
+
+        // when
+        cc.start();
+
+        // then
+        ConsulClient client = new ConsulClient(cc.getContainerIpAddress(), cc.getMappedPort(cc.getHttpPort()));
+        assertNotNull(client.getStatusLeader().getValue());
+        assertTrue(cc.getStartupTimings().containsKey(StartupPhase.HEALTH_WAIT));
+        cc.stop();
+    }
+
+    @Test
+    public void testSeededImageIsReused() {
+        // given
+        String value = UUID.randomUUID().toString();
+        ConsulContainerBuilder builder = new ConsulContainerBuilder()
+                .withKVSeed(KVSource.of(Collections.singletonMap("seeded/key", value)))
+                .withSeededImage("fixture-v1", container -> container.seed(
+                        KVSource.of(Collections.singletonMap("fixture/key", "fixture"))));
+        ConsulContainer first = builder.build();
+        first.start();
+        first.stop();
+
+        // when
+        ConsulContainer second = builder.build();
+        second.start();
+
+        // then
+        ConsulClient client = new ConsulClient(second.getContainerIpAddress(), second.getMappedPort(second.getHttpPort()));
+        assertTrue(second.getDockerImageName().startsWith(SeededImage.REPOSITORY));
+        assertEquals(value, client.getKVValue("seeded/key").getValue().getDecodedValue());
+        assertEquals("fixture", client.getKVValue("fixture/key").getValue().getDecodedValue());
+
+        // finally
+        second.stop();
+        DockerClientFactory.instance().client().removeImageCmd(second.getDockerImageName()).exec();
+    }
+
     private ACL getAclWithTokens() {
         Tokens tokens = new Tokens();
         tokens.setMaster(UUID.randomUUID().toString());
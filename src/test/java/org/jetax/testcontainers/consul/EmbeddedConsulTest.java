@@ -0,0 +1,107 @@
+package org.jetax.testcontainers.consul;
+
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.agent.model.NewService;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+import com.ecwid.consul.v1.session.model.NewSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EmbeddedConsulTest {
+
+    private EmbeddedConsul consul;
+    private ConsulClient client;
+
+    @Before
+    public void setUp() {
+        consul = new ConsulContainerBuilder()
+                .withDatacenter("dc")
+                .buildEmbedded();
+        consul.start();
+        client = new ConsulClient(consul.getContainerIpAddress(), consul.getMappedPort(consul.getHttpPort()));
+    }
+
+    @After
+    public void tearDown() {
+        consul.stop();
+    }
+
+    @Test
+    public void testKVValueIsStored() {
+        // when
+        client.setKVValue("app/key", "value");
+
+        // then
+        assertEquals("value", client.getKVValue("app/key").getValue().getDecodedValue());
+        assertEquals(1, client.getKVValues("app/").getValue().size());
+        assertNull(client.getKVValue("missing").getValue());
+    }
+
+    @Test
+    public void testBlockingQueryReturnsOnChange() throws Exception {
+        // given
+        client.setKVValue("key", "1");
+        long index = client.getKVValue("key").getConsulIndex();
+
+        // when
+        CompletableFuture<Response<GetValue>> watch = CompletableFuture.supplyAsync(() ->
+                client.getKVValue("key", new QueryParams(10, index)));
+        client.setKVValue("key", "2");
+
+        // then
+        Response<GetValue> response = watch.get(5, TimeUnit.SECONDS);
+        assertEquals("2", response.getValue().getDecodedValue());
+        assertTrue(response.getConsulIndex() > index);
+    }
+
+    @Test
+    public void testServiceIsRegisteredInCatalog() {
+        // given
+        NewService service = new NewService();
+        service.setId("web-1");
+        service.setName("web");
+        service.setPort(8080);
+
+        // when
+        client.agentServiceRegister(service);
+
+        // then
+        List<CatalogService> services = client.getCatalogService("web", QueryParams.DEFAULT).getValue();
+        assertEquals(1, services.size());
+        assertEquals(Integer.valueOf(8080), services.get(0).getServicePort());
+        assertEquals(1, client.getCatalogService("consul", QueryParams.DEFAULT).getValue().size());
+    }
+
+    @Test
+    public void testSessionLockIsExclusive() {
+        // given
+        String first = client.sessionCreate(new NewSession(), QueryParams.DEFAULT).getValue();
+        String second = client.sessionCreate(new NewSession(), QueryParams.DEFAULT).getValue();
+
+        // when
+        PutParams acquireFirst = new PutParams();
+        acquireFirst.setAcquireSession(first);
+        PutParams acquireSecond = new PutParams();
+        acquireSecond.setAcquireSession(second);
+
+        // then
+        assertTrue(client.setKVValue("lock", "1", acquireFirst).getValue());
+        assertFalse(client.setKVValue("lock", "2", acquireSecond).getValue());
+        client.sessionDestroy(first, QueryParams.DEFAULT);
+        assertTrue(client.setKVValue("lock", "2", acquireSecond).getValue());
+    }
+}